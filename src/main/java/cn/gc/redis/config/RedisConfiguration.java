@@ -1,24 +1,37 @@
 package cn.gc.redis.config;
 
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import cn.gc.redis.util.CompactRedisSerializer;
+import cn.gc.redis.util.RedisLockSubscriber;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import javax.annotation.Resource;
 import java.lang.reflect.Method;
 import java.net.UnknownHostException;
+import java.time.Duration;
 
 /**
  * @Author: gc
@@ -45,22 +58,59 @@ public class RedisConfiguration {
         };
     }
 
+    /**
+     * 配置了spring.redis.cluster.nodes时使用集群连接，开启拓扑刷新，
+     * 扩容、迁移slot或主从切换后客户端能跟上新的slot分布
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis.cluster", name = "nodes")
+    public LettuceConnectionFactory redisConnectionFactory(RedisProperties redisProperties) {
+        RedisProperties.Cluster cluster = redisProperties.getCluster();
+        RedisClusterConfiguration clusterConfiguration = new RedisClusterConfiguration(cluster.getNodes());
+        if (cluster.getMaxRedirects() != null) {
+            clusterConfiguration.setMaxRedirects(cluster.getMaxRedirects());
+        }
+        if (redisProperties.getPassword() != null) {
+            clusterConfiguration.setPassword(RedisPassword.of(redisProperties.getPassword()));
+        }
+        ClusterTopologyRefreshOptions refreshOptions = ClusterTopologyRefreshOptions.builder()
+                .enablePeriodicRefresh(Duration.ofSeconds(30))
+                .enableAllAdaptiveRefreshTriggers()   // 收到MOVED/ASK重定向、连接断开时立即刷新
+                .build();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfiguration = LettuceClientConfiguration.builder()
+                .clientOptions(ClusterClientOptions.builder().topologyRefreshOptions(refreshOptions).build());
+        if (redisProperties.getTimeout() != null) {
+            clientConfiguration.commandTimeout(redisProperties.getTimeout());
+        }
+        return new LettuceConnectionFactory(clusterConfiguration, clientConfiguration.build());
+    }
+
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
         return RedisCacheManager.builder(connectionFactory).build();
     }
 
+    /**
+     * value序列化，默认紧凑二进制格式(兼容读取JDK序列化的旧数据)；
+     * 需要其他格式时另外定义一个@Primary的RedisSerializer<Object> bean，redisTemplate优先注入它
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer() {
+        return new CompactRedisSerializer();
+    }
+
     /**
      * @return 返回类型
      * @Description: 防止redis入库序列化乱码的问题
      * @date 2018/4/12 10:54
      */
     @Bean
-    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                                       RedisSerializer<Object> redisValueSerializer) {
         RedisTemplate<Object, Object> redisTemplate = new RedisTemplate<Object, Object>();
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         redisTemplate.setKeySerializer(new StringRedisSerializer());//key序列化
-        redisTemplate.setValueSerializer(new JdkSerializationRedisSerializer());  //value序列化
+        redisTemplate.setValueSerializer(redisValueSerializer);  //value序列化
 
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
         redisTemplate.setHashValueSerializer(new StringRedisSerializer());
@@ -68,4 +118,16 @@ public class RedisConfiguration {
         redisTemplate.afterPropertiesSet();
         return redisTemplate;
     }
+
+    /**
+     * 锁释放通知监听容器，全部等待者共用一个订阅连接
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       RedisLockSubscriber lockSubscriber) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(lockSubscriber, new PatternTopic(RedisLockSubscriber.CHANNEL_PATTERN));
+        return container;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package cn.gc.redis.lock;
+
+import cn.gc.redis.util.RedisLockUtil;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 方法级分布式锁，由DistributedLockAspect在方法执行前加锁、执行后释放，
+ * 如 @DistributedLock(key = "'order:' + #orderId", waitMs = 200, leaseMs = 3000)
+ **/
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DistributedLock {
+
+    /**
+     * 锁名，SpEL表达式，#参数名引用方法参数，常量需加单引号
+     */
+    String key();
+
+    /**
+     * 获取锁的超时时间 单位ms，超时抛出RedisLockException
+     */
+    long waitMs() default 200L;
+
+    /**
+     * 锁的过期时间 单位ms，传{@link RedisLockUtil#TUNED}按统计的持锁时长取值，传{@link RedisLockUtil#AUTO_RENEW}由看门狗自动续期
+     */
+    long leaseMs() default 3000L;
+}
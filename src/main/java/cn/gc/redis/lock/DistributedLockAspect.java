@@ -0,0 +1,212 @@
+package cn.gc.redis.lock;
+
+import cn.gc.redis.util.LockHandle;
+import cn.gc.redis.util.RedisLockUtil;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: @DistributedLock切面，通过RedisLockUtil.acquire加锁，方法结束(包括抛出异常)后释放；
+ * 锁名表达式和参数名按方法解析一次后缓存，表达式开启SpEL编译，每次调用只做求值；常量锁名(不含变量)解析时就求值，调用时不再求值，
+ * 含变量的锁名每次只分配一个持有参数数组的轻量上下文，不创建MethodBasedEvaluationContext(其变量表为ConcurrentHashMap，每个参数写入三次)。
+ * 切面顺序为ORDER(接近最高优先级)，在@Transactional(默认最低优先级)的外层: 事务提交或回滚之后才释放锁，
+ * 否则锁释放后、提交之前其他线程能拿到锁并读到未提交前的旧数据
+ **/
+@Aspect
+@Component
+@Order(DistributedLockAspect.ORDER)
+public class DistributedLockAspect {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;   // 切面顺序, 需要在事务切面之外; 不能用HIGHEST_PRECEDENCE, 要排在ExposeInvocationInterceptor(HIGHEST_PRECEDENCE + 1)之后
+
+    private final ExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, DistributedLockAspect.class.getClassLoader()));
+
+    private final ParameterNameDiscoverer nameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    private final StandardEvaluationContext sharedContext = new StandardEvaluationContext();   // 各次求值共用的类型转换、属性访问等, 只读
+
+    private final ConcurrentMap<Method, LockKey> lockKeys = new ConcurrentHashMap<>();   // 方法 -> 解析好的锁名表达式
+
+    @Autowired
+    private RedisLockUtil redisLockUtil;
+
+    // 不绑定注解参数: 注解按方法缓存在LockKey里, 每次调用不再匹配和绑定
+    @Around("@annotation(cn.gc.redis.lock.DistributedLock)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        LockKey lockKey = lockKeys.get(method);
+        if (lockKey == null) {
+            lockKey = lockKeys.computeIfAbsent(method, m -> parse(m, joinPoint.getTarget()));
+        }
+        String key = lockKey.evaluate(joinPoint.getArgs());
+        LockHandle lock = redisLockUtil.acquire(key, lockKey.annotation.waitMs(), lockKey.annotation.leaseMs());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            lock.close();
+        }
+    }
+
+    private LockKey parse(Method method, Object target) {
+        // 接口上的方法取不到参数名, 用实现类的方法
+        Method specific = target == null ? method : AopUtils.getMostSpecificMethod(method, target.getClass());
+        DistributedLock annotation = AnnotatedElementUtils.findMergedAnnotation(specific, DistributedLock.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method, DistributedLock.class);
+        }
+        Expression expression = parser.parseExpression(annotation.key());
+        if (expression instanceof SpelExpression && ((SpelExpression) expression).getAST() instanceof Literal) {
+            return new LockKey(annotation, null, expression.getValue(String.class), null);
+        }
+        // 参数可用#参数名、#p0或#a0引用, 与MethodBasedEvaluationContext一致
+        Map<String, Integer> variables = new HashMap<>();
+        String[] parameterNames = nameDiscoverer.getParameterNames(specific);   // 取不到(编译时没有调试信息)时为null, 只能用#p0
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            variables.put("p" + i, i);
+            variables.put("a" + i, i);
+            if (parameterNames != null && parameterNames[i] != null) {
+                variables.put(parameterNames[i], i);
+            }
+        }
+        return new LockKey(annotation, expression, null, variables);
+    }
+
+    /**
+     * 一个方法的锁注解、锁名表达式及参数名到参数下标的映射，每次调用不再重新查找参数名
+     */
+    private class LockKey {
+        /** 方法上的锁注解 */
+        private final DistributedLock annotation;
+        /** 锁名表达式, 常量锁名时为null */
+        private final Expression expression;
+        /** 常量锁名 */
+        private final String constant;
+        /** 变量名 -> 参数下标 */
+        private final Map<String, Integer> variables;
+
+        LockKey(DistributedLock annotation, Expression expression, String constant, Map<String, Integer> variables) {
+            this.annotation = annotation;
+            this.expression = expression;
+            this.constant = constant;
+            this.variables = variables;
+        }
+
+        String evaluate(Object[] args) {
+            return expression == null ? constant : expression.getValue(new ArgsContext(variables, args), String.class);
+        }
+    }
+
+    /**
+     * 一次调用的求值上下文，只持有参数数组，变量按参数下标查找；其余都委托给共用的sharedContext
+     */
+    private class ArgsContext implements EvaluationContext {
+        private final Map<String, Integer> variables;
+        private final Object[] args;
+        private Map<String, Object> assigned;   // 表达式中赋值的变量, 一般没有
+
+        ArgsContext(Map<String, Integer> variables, Object[] args) {
+            this.variables = variables;
+            this.args = args;
+        }
+
+        @Override
+        public Object lookupVariable(String name) {
+            if (assigned != null && assigned.containsKey(name)) {
+                return assigned.get(name);
+            }
+            Integer index = variables.get(name);
+            return index != null && index < args.length ? args[index] : null;
+        }
+
+        @Override
+        public void setVariable(String name, Object value) {
+            if (assigned == null) {
+                assigned = new HashMap<>();
+            }
+            assigned.put(name, value);
+        }
+
+        @Override
+        public TypedValue getRootObject() {
+            return TypedValue.NULL;
+        }
+
+        @Override
+        public List<PropertyAccessor> getPropertyAccessors() {
+            return sharedContext.getPropertyAccessors();
+        }
+
+        @Override
+        public List<ConstructorResolver> getConstructorResolvers() {
+            return sharedContext.getConstructorResolvers();
+        }
+
+        @Override
+        public List<MethodResolver> getMethodResolvers() {
+            return sharedContext.getMethodResolvers();
+        }
+
+        @Override
+        public BeanResolver getBeanResolver() {
+            return sharedContext.getBeanResolver();
+        }
+
+        @Override
+        public TypeLocator getTypeLocator() {
+            return sharedContext.getTypeLocator();
+        }
+
+        @Override
+        public TypeConverter getTypeConverter() {
+            return sharedContext.getTypeConverter();
+        }
+
+        @Override
+        public TypeComparator getTypeComparator() {
+            return sharedContext.getTypeComparator();
+        }
+
+        @Override
+        public OperatorOverloader getOperatorOverloader() {
+            return sharedContext.getOperatorOverloader();
+        }
+    }
+}
@@ -46,16 +46,17 @@ public class RedisLockDemo implements CommandLineRunner {
         public void run() {
 
             //是否可以使用此锁
-            boolean useLock = redisLockUtil.getLock(RedisLockDemo.LOCK_KEY, this.getName(), 10000, 1000, 2000);
+            boolean useLock = redisLockUtil.getLock(RedisLockDemo.LOCK_KEY, this.getName(), 10000, 1000, RedisLockUtil.TUNED);
             if (useLock){
-                logger.info("{}-----------{}-获取锁并使用",LocalDateTime.now(),this.getName());
                 try {
+                    logger.info("{}-----------{}-获取锁并使用",LocalDateTime.now(),this.getName());
                     Thread.sleep(1000L);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
+                } finally {
+                    //使用完以后释放锁, 放在finally中保证异常时也释放
+                    redisLockUtil.releaseLock(RedisLockDemo.LOCK_KEY, this.getName());
                 }
-                //使用完以后释放锁
-                redisLockUtil.releaseLock(RedisLockDemo.LOCK_KEY);
             }else{
                 logger.info("{}-----------{}-锁已被占用，暂时无法使用",LocalDateTime.now(),this.getName());
             }
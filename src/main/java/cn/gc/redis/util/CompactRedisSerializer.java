@@ -0,0 +1,270 @@
+package cn.gc.redis.util;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 紧凑的二进制value序列化: 1字节类型标记 + 内容，整数用zigzag变长编码，字符串/字节数组带变长长度前缀，
+ * 业务类型注册编解码器后只写类型id和字段，不写类描述；未注册的类型仍用JDK序列化。
+ * JDK序列化的数据以0xACED开头，与类型标记不冲突，切换前写入的旧数据照常可读
+ **/
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_FALSE = 4;
+    private static final byte TYPE_TRUE = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_FLOAT = 7;
+    private static final byte TYPE_SHORT = 8;
+    private static final byte TYPE_BYTE = 9;
+    private static final byte TYPE_CHAR = 10;
+    private static final byte TYPE_BYTES = 11;
+    private static final byte TYPE_REGISTERED = 12;
+
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;   // 超过此大小的缓冲区用完不保留, 避免线程长期占用大块内存
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    private final Map<Class<?>, Registration<?>> byType = new ConcurrentHashMap<>();   // 类型 -> 注册信息
+
+    private final Map<Integer, Registration<?>> byId = new ConcurrentHashMap<>();   // 类型id -> 注册信息
+
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);   // 每个线程复用的写缓冲区
+
+    /**
+     * 业务类型的编解码器，只读写字段，字段顺序由实现自行保证
+     */
+    public interface Codec<T> {
+
+        void write(T value, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * 注册业务类型，typeId写入数据中，注册后不能再改；类型id和类型都只能注册一次
+     *
+     * @param typeId 类型id，全局唯一
+     * @param type   类型
+     * @param codec  编解码器
+     * @return this
+     * @throws IllegalArgumentException 类型id或类型已被注册
+     */
+    public <T> CompactRedisSerializer register(int typeId, Class<T> type, Codec<T> codec) {
+        Registration<T> registration = new Registration<>(typeId, codec);
+        if (byType.putIfAbsent(type, registration) != null) {
+            throw new IllegalArgumentException("类型已被注册: " + type.getName());
+        }
+        if (byId.putIfAbsent(typeId, registration) != null) {
+            byType.remove(type, registration);   // 撤销上一步, 保持两个索引一致
+            throw new IllegalArgumentException("类型id已被注册: " + typeId);
+        }
+        return this;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Registration<?> registration = byType.get(value.getClass());
+        if (registration == null && !isBuiltIn(value)) {
+            return jdkSerializer.serialize(value);
+        }
+        Buffer buffer = buffers.get();
+        buffer.reset();
+        try {
+            if (registration != null) {
+                buffer.out.writeByte(TYPE_REGISTERED);
+                writeVarLong(buffer.out, registration.typeId);
+                registration.write(value, buffer.out);
+            } else {
+                writeBuiltIn(value, buffer.out);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("序列化失败: " + value.getClass().getName(), e);
+        } finally {
+            if (buffer.capacity() > MAX_POOLED_BUFFER) {
+                buffers.remove();
+            }
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length > 1 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED) {   // JDK序列化的旧数据
+            return jdkSerializer.deserialize(bytes);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+        try {
+            switch (bytes[0]) {
+                case TYPE_STRING:
+                    return new String(readBytes(in), StringUtils.UTF8);
+                case TYPE_INT:
+                    return (int) zigzagDecode(readVarLong(in));
+                case TYPE_LONG:
+                    return zigzagDecode(readVarLong(in));
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_DOUBLE:
+                    return in.readDouble();
+                case TYPE_FLOAT:
+                    return in.readFloat();
+                case TYPE_SHORT:
+                    return in.readShort();
+                case TYPE_BYTE:
+                    return in.readByte();
+                case TYPE_CHAR:
+                    return in.readChar();
+                case TYPE_BYTES:
+                    return readBytes(in);
+                case TYPE_REGISTERED:
+                    int typeId = (int) readVarLong(in);
+                    Registration<?> registration = byId.get(typeId);
+                    if (registration == null) {
+                        throw new SerializationException("未注册的类型id: " + typeId);
+                    }
+                    return registration.codec.read(in);
+                default:
+                    throw new SerializationException("未知的类型标记: " + bytes[0]);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("反序列化失败", e);
+        }
+    }
+
+    private static boolean isBuiltIn(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean
+                || value instanceof Double || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof Character || value instanceof byte[];
+    }
+
+    private static void writeBuiltIn(Object value, DataOutputStream out) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeBytes(out, ((String) value).getBytes(StringUtils.UTF8));
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            writeVarLong(out, zigzagEncode((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            writeVarLong(out, zigzagEncode((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHAR);
+            out.writeChar((Character) value);
+        } else {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 无符号变长编码，每字节7位，最高位表示后面还有
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    /**
+     * 注册类型的类型id和编解码器
+     */
+    private static class Registration<T> {
+        private final int typeId;
+        private final Codec<T> codec;
+
+        Registration(int typeId, Codec<T> codec) {
+            this.typeId = typeId;
+            this.codec = codec;
+        }
+
+        @SuppressWarnings("unchecked")
+        void write(Object value, DataOutput out) throws IOException {
+            codec.write((T) value, out);
+        }
+    }
+
+    /**
+     * 可复用的写缓冲区，reset后从头写，只在返回结果时按实际长度复制一次
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        private final DataOutputStream out = new DataOutputStream(this);
+
+        Buffer() {
+            super(256);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cn.gc.redis.util;
+
+import java.util.function.Consumer;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 一次加锁成功的凭证，释放时凭此校验持有者；实现AutoCloseable，可用try-with-resources保证释放。
+ * RedisLockUtil.acquire返回的凭证只能在加锁线程内close
+ **/
+public class LockHandle implements AutoCloseable {
+
+    private final String key;   // 锁名
+
+    private final String owner;   // 持有者value
+
+    private final long expireAt;   // 加锁时计算的过期时间点(本地时钟), 自动续期的锁为Long.MAX_VALUE
+
+    private final long fencingToken;   // 加锁时拿到的fencing token, 单调递增, 没有时为-1
+
+    private final Consumer<LockHandle> releaser;   // close时的释放方式, 由发放凭证的锁决定
+
+    private volatile boolean closed;
+
+    LockHandle(String key, String owner, long expireAt, long fencingToken, Consumer<LockHandle> releaser) {
+        this.key = key;
+        this.owner = owner;
+        this.expireAt = expireAt;
+        this.fencingToken = fencingToken;
+        this.releaser = releaser;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * 释放锁，重复调用只释放一次
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaser.accept(this);
+    }
+
+    @Override
+    public String toString() {
+        return "LockHandle{key='" + key + "', owner='" + owner + "', expireAt=" + expireAt + ", fencingToken=" + fencingToken + '}';
+    }
+}
@@ -0,0 +1,241 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 响应式锁，供WebFlux使用，与RedisLockUtil使用同一套加解锁脚本(NX/PX、持有者校验)和释放通知；
+ * 等待通过释放通知或Mono.delay触发重试，不会阻塞事件循环线程。持有者为每次加锁生成的value，不可重入
+ **/
+@Component
+public class ReactiveRedisLock {
+    private static Logger log = LoggerFactory.getLogger(ReactiveRedisLock.class);
+
+    private static final long LOCK_TRY_TIMEOUT = 200L;   // 默认获取锁的超时时间
+
+    private static final long DEFAULT_EXPIRE_TIME = 3000L;   // 默认key过期时间, 需考虑业务执行时长
+
+    @Autowired(required = false)
+    private ReactiveRedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisLockSubscriber lockSubscriber;
+
+    private final String instanceId = UUID.randomUUID().toString();   // 当前实例标识, 与序号组成每次加锁的value
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Consumer<LockHandle> handleReleaser = handle -> release(handle).subscribe();   // 凭证close时发起释放, 不阻塞
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private boolean cluster;   // 是否连接的是redis cluster, 决定fencing计数器key的构造
+
+    @PostConstruct
+    public void init() {
+        if (connectionFactory != null) {
+            redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+            cluster = connectionFactory instanceof LettuceConnectionFactory && ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+        }
+    }
+
+    /**
+     * 获取锁
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param lease   锁的过期时间 单位ms
+     * @return 获取成功时为锁凭证，超时为空；获取过程中取消会放弃获取
+     */
+    public Mono<LockHandle> acquire(String key, long timeout, long lease) {
+        if (StringUtils.isEmpty(key)) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            ReactiveStringRedisTemplate template = template();
+            String owner = instanceId + ":reactive:" + sequence.incrementAndGet();
+            long deadline = System.currentTimeMillis() + timeout;
+            AtomicBoolean delivered = new AtomicBoolean();
+            return attempt(template, key, owner, lease)
+                    .flatMap(result -> RedisLockUtil.isLocked(result) || timeout <= 0 ? Mono.just(result)
+                            : Mono.using(() -> new Waiter(key), waiter -> await(template, waiter, key, owner, lease, deadline), Waiter::close))
+                    .filter(RedisLockUtil::isLocked)
+                    .map(result -> new LockHandle(key, owner, System.currentTimeMillis() + lease, RedisLockUtil.resultValue(result), handleReleaser))
+                    .doOnNext(handle -> delivered.set(true))
+                    // 取消时可能有加锁命令在途, 同一连接上命令有序, 按value释放一次即可
+                    .doOnCancel(() -> {
+                        if (!delivered.get()) {
+                            release(template, key, owner).subscribe();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 释放锁，锁已过期或已被他人持有时只记录日志
+     *
+     * @param handle 加锁凭证
+     */
+    public Mono<Void> release(LockHandle handle) {
+        return Mono.defer(() -> release(template(), handle.getKey(), handle.getOwner()))
+                .doOnNext(del -> {
+                    if (!del) {
+                        log.warn("锁已过期或不是该凭证持有: {}", handle);
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * 持有锁执行action，action完成、出错或被取消时都会释放锁
+     *
+     * @param key    锁名
+     * @param action 需要加锁执行的操作
+     * @return action的结果，获取锁超时时以RedisLockException结束
+     */
+    public <T> Mono<T> withLock(String key, Mono<T> action) {
+        return withLock(key, LOCK_TRY_TIMEOUT, DEFAULT_EXPIRE_TIME, action);
+    }
+
+    /**
+     * 持有锁执行action，action完成、出错或被取消时都会释放锁
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param lease   锁的过期时间 单位ms
+     * @param action  需要加锁执行的操作
+     * @return action的结果，获取锁超时时以RedisLockException结束
+     */
+    public <T> Mono<T> withLock(String key, long timeout, long lease, Mono<T> action) {
+        Mono<LockHandle> handle = acquire(key, timeout, lease)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new RedisLockException("获取锁超时: " + key))));
+        return Mono.usingWhen(handle, h -> action, this::release, this::release, this::release);
+    }
+
+    private ReactiveStringRedisTemplate template() {
+        if (redisTemplate == null) {
+            throw new UnsupportedOperationException("响应式锁需要ReactiveRedisConnectionFactory");
+        }
+        return redisTemplate;
+    }
+
+    /**
+     * 一次加锁尝试
+     *
+     * @return 加锁脚本结果{是否成功, fencing token或锁的剩余过期时间}
+     */
+    private Mono<List<?>> attempt(ReactiveStringRedisTemplate template, String key, String owner, long lease) {
+        // 多值结果在响应式连接上按元素逐个发出, 收集回一个列表
+        return template.execute(RedisLockUtil.LOCK_SCRIPT, RedisLockUtil.lockKeys(key, cluster),
+                Arrays.asList(owner, String.valueOf(lease), String.valueOf(RedisLockUtil.FENCING_TTL)))
+                .cast(Object.class)
+                .collectList()
+                .map(result -> result.size() == 1 && result.get(0) instanceof List ? (List<?>) result.get(0) : result);
+    }
+
+    private Mono<Boolean> release(ReactiveStringRedisTemplate template, String key, String owner) {
+        return template.execute(RedisLockUtil.UNLOCK_SCRIPT, Collections.singletonList(key),
+                Arrays.asList(owner, RedisLockSubscriber.channel(key)))
+                .next()
+                .map(result -> result == 1L)
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 失败后等待释放通知或锁自然过期再重试，直到成功或超时
+     *
+     * @return 最后一次加锁脚本结果
+     */
+    private Mono<List<?>> await(ReactiveStringRedisTemplate template, Waiter waiter, String key, String owner, long lease, long deadline) {
+        waiter.arm();   // 先换新信号再尝试, 尝试之后到达的通知不会丢
+        return attempt(template, key, owner, lease)
+                .flatMap(result -> {
+                    long remain = deadline - System.currentTimeMillis();
+                    if (RedisLockUtil.isLocked(result) || remain <= 0) {
+                        return Mono.just(result);
+                    }
+                    // 持有者宕机时不会有通知，最多等到锁过期
+                    long ttl = RedisLockUtil.resultValue(result);
+                    long wait = ttl >= 0 && ttl < remain ? Math.max(ttl, 1L) : remain;
+                    return Mono.first(waiter.signal(), Mono.delay(Duration.ofMillis(wait)).then())
+                            .then(Mono.defer(() -> await(template, waiter, key, owner, lease, deadline)));
+                });
+    }
+
+    /**
+     * 一次获取期间的释放通知登记，每轮尝试前换一个新信号；离开时有没用于重试的通知就交给下一个等待者
+     */
+    private final class Waiter implements RedisLockSubscriber.Waiter {
+
+        private static final int WAITING = 0;
+        private static final int SIGNALLED = 1;   // 当前信号已完成, 还没有据此重试
+        private static final int CLOSED = 2;
+
+        private final String key;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private volatile MonoProcessor<Void> signal = MonoProcessor.create();
+
+        private final long ticket;
+
+        Waiter(String key) {
+            this.key = key;
+            this.ticket = lockSubscriber.subscribe(key, this);
+        }
+
+        void arm() {
+            signal = MonoProcessor.create();
+            state.compareAndSet(SIGNALLED, WAITING);
+        }
+
+        Mono<Void> signal() {
+            return signal;
+        }
+
+        /**
+         * 监听线程上回调，只完成信号
+         */
+        @Override
+        public boolean wake() {
+            while (true) {
+                int current = state.get();
+                if (current != WAITING) {
+                    return current == SIGNALLED;
+                }
+                if (state.compareAndSet(WAITING, SIGNALLED)) {
+                    signal.onComplete();
+                    return true;
+                }
+            }
+        }
+
+        void close() {
+            boolean pending = state.getAndSet(CLOSED) == SIGNALLED;
+            lockSubscriber.unsubscribe(key, ticket);
+            if (pending) {   // 已拿到锁时多转交一次只会让下一个等待者多试一次
+                lockSubscriber.wakeNext(key, ticket);
+            }
+        }
+    }
+}
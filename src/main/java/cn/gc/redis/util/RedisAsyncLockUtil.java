@@ -0,0 +1,250 @@
+package cn.gc.redis.util;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 异步非阻塞锁，基于lettuce异步命令，与RedisLockUtil使用同一套加解锁脚本和释放通知；
+ * 等待中的获取只是一个小对象，由释放通知或一个共享定时线程触发重试，不占用线程
+ **/
+@Component
+public class RedisAsyncLockUtil {
+    private static Logger log = LoggerFactory.getLogger(RedisAsyncLockUtil.class);
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisLockSubscriber lockSubscriber;
+
+    private final String instanceId = UUID.randomUUID().toString();   // 当前实例标识, 与序号组成每次加锁的value
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Consumer<LockHandle> handleReleaser = this::releaseAsync;   // 凭证close时异步释放, 不等待结果
+
+    private RedisConnection connection;
+
+    private RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private boolean cluster;   // 是否连接的是redis cluster, 决定fencing计数器key的构造
+
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")   // lettuce连接的原生连接就是按byte[]编解码的异步命令
+    public void start() {
+        if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+            log.warn("当前连接工厂不是lettuce, 异步锁不可用: {}", connectionFactory.getClass().getName());
+            return;
+        }
+        connection = connectionFactory.getConnection();
+        cluster = ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+        commands = (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-lock-async-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            connection.close();
+        }
+    }
+
+    /**
+     * 异步获取锁，调用线程不会被阻塞
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param lease   锁的过期时间 单位ms
+     * @return 获取成功时完成为锁凭证，超时时以RedisLockException异常完成；取消该future会放弃获取
+     * @throws IllegalArgumentException 锁名为空
+     */
+    public CompletableFuture<LockHandle> tryLockAsync(String key, long timeout, long lease) {
+        if (commands == null) {
+            throw new UnsupportedOperationException("异步锁需要lettuce连接");
+        }
+        if (StringUtils.isEmpty(key)) {
+            throw new IllegalArgumentException("锁名不能为空");
+        }
+        CompletableFuture<LockHandle> future = new CompletableFuture<>();
+        String owner = instanceId + ":async:" + sequence.incrementAndGet();
+        new Acquisition(key, owner, lease, System.currentTimeMillis() + timeout, future).attempt();
+        return future;
+    }
+
+    /**
+     * 异步释放锁
+     *
+     * @param handle 加锁凭证
+     * @return true 释放成功，false锁已过期或不是该凭证持有
+     */
+    public CompletableFuture<Boolean> releaseAsync(LockHandle handle) {
+        if (commands == null) {
+            throw new UnsupportedOperationException("异步锁需要lettuce连接");
+        }
+        return RedisScripts.<Long>evalAsync(commands, RedisLockUtil.UNLOCK_SCRIPT, ScriptOutputType.INTEGER,
+                new byte[][]{RedisScripts.bytes(handle.getKey())},
+                RedisScripts.bytes(handle.getOwner()), RedisScripts.bytes(RedisLockSubscriber.channel(handle.getKey())))
+                .thenApply(result -> result != null && result == 1L);
+    }
+
+    /**
+     * 一次异步获取的状态机: 发起尝试 -> 失败则登记通知并挂定时器 -> 通知或定时器到期再尝试
+     */
+    private class Acquisition implements Runnable, RedisLockSubscriber.Waiter {
+
+        private static final int ATTEMPTING = 0;   // 有一次尝试在途
+        private static final int WAITING = 1;   // 等待通知或定时器
+        private static final int SIGNALLED = 2;   // 尝试在途时收到了通知, 失败后要立即重试
+        private static final int DONE = 3;
+
+        private final String key;
+        private final String owner;
+        private final long lease;
+        private final long deadline;
+        private final CompletableFuture<LockHandle> future;
+        private final AtomicInteger state = new AtomicInteger(ATTEMPTING);
+        private volatile boolean subscribed;
+        private volatile long ticket;   // 通知登记序号
+        private volatile ScheduledFuture<?> retryTask;
+
+        Acquisition(String key, String owner, long lease, long deadline, CompletableFuture<LockHandle> future) {
+            this.key = key;
+            this.owner = owner;
+            this.lease = lease;
+            this.deadline = deadline;
+            this.future = future;
+        }
+
+        void attempt() {
+            RedisScripts.<List<Object>>evalAsync(commands, RedisLockUtil.LOCK_SCRIPT, ScriptOutputType.MULTI,
+                    new byte[][]{RedisScripts.bytes(key), RedisScripts.bytes(RedisLockUtil.fencingKey(key, cluster))},
+                    RedisScripts.bytes(owner), RedisScripts.bytes(lease), RedisScripts.bytes(RedisLockUtil.FENCING_TTL))
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            finish(false);
+                            future.completeExceptionally(e);
+                        } else if (RedisLockUtil.isLocked(result)) {
+                            finish(true);
+                            LockHandle handle = new LockHandle(key, owner, System.currentTimeMillis() + lease, RedisLockUtil.resultValue(result), handleReleaser);
+                            if (!future.complete(handle)) {   // 调用方已取消, 拿到的锁要还回去
+                                releaseAsync(handle);
+                            }
+                        } else {
+                            retryLater(RedisLockUtil.resultValue(result));
+                        }
+                    });
+        }
+
+        private void retryLater(long ttl) {
+            long remain = deadline - System.currentTimeMillis();
+            if (remain <= 0 || future.isDone()) {
+                finish(false);
+                future.completeExceptionally(new RedisLockException("获取锁超时: " + key));
+                return;
+            }
+            if (!subscribed) {   // 订阅后再试一次，防止首次尝试与订阅之间的释放通知丢失
+                ticket = lockSubscriber.subscribe(key, this);
+                subscribed = true;
+                attempt();
+                return;
+            }
+            // 持有者宕机时不会有通知，最多等到锁过期
+            long wait = ttl >= 0 && ttl < remain ? Math.max(ttl, 1L) : remain;
+            try {
+                retryTask = timer.schedule(this, wait, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {   // 已stop, 不能再挂定时器; 在回调线程里抛出的话future永远不会完成
+                finish(false);
+                future.completeExceptionally(new IllegalStateException("异步锁已停止: " + key, e));
+                return;
+            }
+            if (!state.compareAndSet(ATTEMPTING, WAITING)) {   // 挂定时器期间收到了通知
+                retryTask.cancel(false);
+                state.set(ATTEMPTING);
+                attempt();
+            }
+        }
+
+        /**
+         * 定时器到期
+         */
+        @Override
+        public void run() {
+            wake();
+        }
+
+        /**
+         * 收到释放通知或定时器到期
+         *
+         * @return false 已完成，通知交给下一个等待者
+         */
+        @Override
+        public boolean wake() {
+            while (true) {
+                int current = state.get();
+                if (current == WAITING) {
+                    if (state.compareAndSet(WAITING, ATTEMPTING)) {
+                        ScheduledFuture<?> task = retryTask;
+                        if (task != null) {
+                            task.cancel(false);
+                        }
+                        attempt();
+                        return true;
+                    }
+                } else if (current == ATTEMPTING) {
+                    if (state.compareAndSet(ATTEMPTING, SIGNALLED)) {
+                        return true;
+                    }
+                } else {
+                    return current == SIGNALLED;
+                }
+            }
+        }
+
+        /**
+         * 结束获取；没拿到锁又有尝试期间收到的通知时，把通知交给下一个等待者
+         */
+        private void finish(boolean locked) {
+            boolean pending = state.getAndSet(DONE) == SIGNALLED;
+            if (subscribed) {
+                lockSubscriber.unsubscribe(key, ticket);
+                if (pending && !locked) {
+                    lockSubscriber.wakeNext(key, ticket);
+                }
+            }
+            ScheduledFuture<?> task = retryTask;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+    }
+}
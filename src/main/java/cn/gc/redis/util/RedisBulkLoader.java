@@ -0,0 +1,231 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: hash批量导入，按条数和字节数把数据切成块，每块是一个pipeline，块内每个HMSET带多个field；
+ * 全部调用方共用parallelism个发送名额，同时发送的块不超过parallelism个，生产方在没有名额时等待；
+ * 每个调用方另有一个正在读取的块，内存中最多parallelism+并发调用数个块，与数据总量无关。
+ * 数据量小时直接用RedisTemplateUtil.setHash
+ **/
+@Component
+public class RedisBulkLoader {
+    private static Logger log = LoggerFactory.getLogger(RedisBulkLoader.class);
+
+    @Value("${redis.bulk.chunk-size:10000}")
+    private int chunkSize;   // 每块最多多少个field
+
+    @Value("${redis.bulk.chunk-bytes:4194304}")
+    private int chunkBytes;   // 每块最多多少字节(field+value), 控制客户端输出缓冲区
+
+    @Value("${redis.bulk.fields-per-command:500}")
+    private int fieldsPerCommand;   // 每个HMSET带多少个field
+
+    @Value("${redis.bulk.parallelism:4}")
+    private int parallelism;   // 同时发送的块数
+
+    @Autowired
+    private RedisTemplateUtil redisTemplate;
+
+    private ExecutorService executor;
+
+    private Semaphore slots;   // 发送名额, 全部调用方共用
+
+    @PostConstruct
+    public void start() {
+        slots = new Semaphore(parallelism);
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "redis-bulk-loader-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 停止后正在发送的块被中断，排队未开始的块取消并归还名额，等待中的调用方随之结束并抛出异常
+     */
+    @PreDestroy
+    public void stop() {
+        for (Runnable dropped : executor.shutdownNow()) {
+            if (dropped instanceof ChunkTask) {
+                ((ChunkTask) dropped).cancel(new IllegalStateException("RedisBulkLoader已停止"));
+            }
+        }
+    }
+
+    /**
+     * 按默认块大小导入hash
+     *
+     * @param key     key
+     * @param entries field -> value，value按UTF-8写入(同setHash)，不能为null
+     * @return 写入的field数
+     */
+    public long loadHash(String key, Stream<? extends Map.Entry<String, ?>> entries) {
+        try (Stream<? extends Map.Entry<String, ?>> stream = entries) {
+            return loadHash(key, stream.iterator(), chunkSize, chunkBytes);
+        }
+    }
+
+    /**
+     * 按默认块大小导入hash
+     *
+     * @param key     key
+     * @param entries field -> value，value按UTF-8写入(同setHash)，不能为null
+     * @return 写入的field数
+     */
+    public long loadHash(String key, Iterator<? extends Map.Entry<String, ?>> entries) {
+        return loadHash(key, entries, chunkSize, chunkBytes);
+    }
+
+    /**
+     * 分块导入hash，全部块写完后返回；某块失败或调用线程被中断时不再产生新块，
+     * 等本次已发出的块都结束后抛出异常(已写入的数据不回滚)
+     *
+     * @param key        key
+     * @param entries    field -> value，按需读取，value不能为null
+     * @param chunkSize  每块最多多少个field
+     * @param chunkBytes 每块最多多少字节
+     * @return 写入的field数
+     */
+    public long loadHash(String key, Iterator<? extends Map.Entry<String, ?>> entries, int chunkSize, int chunkBytes) {
+        byte[] rawKey = Utf8Encoder.encode(key);
+        Phaser inFlight = new Phaser(1);   // 本次调用已发出未结束的块各占一个party, 调用方占一个
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long total = 0L;
+        long startTime = System.currentTimeMillis();
+        try {
+            while (entries.hasNext() && failure.get() == null) {
+                Chunk chunk = nextChunk(entries, chunkSize, chunkBytes);
+                slots.acquire();   // 没有名额时等待, 发送中的块不超过parallelism个
+                ChunkTask task = new ChunkTask(rawKey, chunk, inFlight, failure);
+                inFlight.register();
+                try {
+                    executor.execute(task);
+                } catch (RuntimeException e) {   // 已停止
+                    task.finish();
+                    throw e;
+                }
+                total += chunk.size;
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new IllegalStateException("批量导入被中断: " + key, e));
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.arriveAndAwaitAdvance();   // 等本次发出的块都结束, 不响应中断; 每块的耗时受命令超时限制
+        }
+        RuntimeException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+        log.info("批量导入{}完成: {}个field, 耗时{}ms", key, total, System.currentTimeMillis() - startTime);
+        return total;
+    }
+
+    /**
+     * 读取一块，条数或字节数先到上限的为准，至少一个field
+     */
+    private Chunk nextChunk(Iterator<? extends Map.Entry<String, ?>> entries, int chunkSize, int chunkBytes) {
+        Chunk chunk = new Chunk();
+        Map<byte[], byte[]> command = null;
+        long bytes = 0L;
+        while (entries.hasNext() && chunk.size < chunkSize && bytes < chunkBytes) {
+            Map.Entry<String, ?> entry = entries.next();
+            if (command == null || command.size() >= fieldsPerCommand) {
+                command = new LinkedHashMap<>();
+                chunk.commands.add(command);
+            }
+            byte[] field = Utf8Encoder.encode(entry.getKey());
+            byte[] value = Utf8Encoder.encode(entry.getValue());
+            command.put(field, value);
+            bytes += field.length + value.length;
+            chunk.size++;
+        }
+        return chunk;
+    }
+
+    /**
+     * 一块一个pipeline，回复只有每个HMSET一个OK
+     */
+    private void write(byte[] rawKey, Chunk chunk) {
+        redisTemplate.executePipelined((RedisConnection connection) -> {
+            for (Map<byte[], byte[]> command : chunk.commands) {
+                connection.hMSet(rawKey, command);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 发送一块的任务，结束或被取消时归还名额
+     */
+    private class ChunkTask implements Runnable {
+        private final byte[] rawKey;
+        private final Chunk chunk;
+        private final Phaser inFlight;
+        private final AtomicReference<RuntimeException> failure;
+
+        ChunkTask(byte[] rawKey, Chunk chunk, Phaser inFlight, AtomicReference<RuntimeException> failure) {
+            this.rawKey = rawKey;
+            this.chunk = chunk;
+            this.inFlight = inFlight;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                write(rawKey, chunk);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                finish();
+            }
+        }
+
+        /**
+         * 线程池停止时未执行的任务
+         */
+        void cancel(RuntimeException reason) {
+            failure.compareAndSet(null, reason);
+            finish();
+        }
+
+        void finish() {
+            slots.release();
+            inFlight.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * 待发送的一块数据
+     */
+    private static class Chunk {
+        /** 每个元素是一个HMSET的field -> value */
+        private final List<Map<byte[], byte[]>> commands = new ArrayList<>();
+        /** field数 */
+        private int size;
+    }
+}
@@ -0,0 +1,145 @@
+package cn.gc.redis.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 两级锁: 同一JVM内的线程先在本地公平锁上排队，只有拿到本地锁的线程去竞争redis锁；
+ * redis锁以JVM为持有者(看门狗续期)，释放时本地还有等待者就直接交给下一个线程，不访问redis，
+ * 连续交接HANDOFF_BUDGET次后必须真正释放一次，让其他JVM有机会获取。每个key对redis的请求从O(线程数)降到O(1)
+ **/
+@Component
+public class RedisCoalescingLockUtil {
+
+    private static final int HANDOFF_BUDGET = 8;   // 本地连续交接次数上限
+
+    @Autowired
+    private RedisLockUtil lockUtil;
+
+    @Autowired
+    private RedisLockWatchdog watchdog;
+
+    private final String owner = UUID.randomUUID().toString() + ":jvm";   // redis锁的持有者为整个JVM
+
+    private final ConcurrentMap<String, LocalLock> locks = new ConcurrentHashMap<>();   // 锁名 -> 本地锁, 无人使用时移除
+
+    /**
+     * 获取锁，可重入
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间(含本地排队) 单位ms
+     * @return true 获取成功，false获取失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryLock(String key, long timeout) throws InterruptedException {
+        long startTime = System.currentTimeMillis();  // 开始时间戳
+        LocalLock local = retain(key);
+        boolean locked = false;
+        try {
+            if (!local.lock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            try {
+                if (local.redisHeld && !watchdog.isWatched(key, owner)) {  // 交接过来的redis锁已丢失
+                    local.redisHeld = false;
+                    local.handoffs = 0;
+                }
+                if (!local.redisHeld) {
+                    long remain = timeout - (System.currentTimeMillis() - startTime);
+                    local.redisHeld = lockUtil.lockWithoutHold(key, owner, Math.max(remain, 0L), RedisLockUtil.AUTO_RENEW);
+                }
+                locked = local.redisHeld;
+                return locked;
+            } finally {
+                if (!locked) {
+                    local.lock.unlock();
+                }
+            }
+        } finally {
+            if (!locked) {
+                abandon(key, local);
+            }
+        }
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param key 锁名
+     * @throws IllegalMonitorStateException 当前线程未持有锁
+     */
+    public void unlock(String key) {
+        LocalLock local = locks.get(key);
+        if (local == null || !local.lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("当前线程未持有锁: " + key);
+        }
+        try {
+            if (local.lock.getHoldCount() == 1) {
+                if (local.lock.hasQueuedThreads() && local.handoffs < HANDOFF_BUDGET) {
+                    local.handoffs++;   // 保留redis锁, 直接交给本地下一个等待者
+                } else {
+                    local.handoffs = 0;
+                    local.redisHeld = false;
+                    lockUtil.unlockWithoutHold(key, owner);
+                }
+            }
+        } finally {
+            local.lock.unlock();
+            release(key);
+        }
+    }
+
+    /**
+     * 获取失败后清理: 交接时的等待者可能恰好超时或被中断，此时redis锁无人持有，需要真正释放
+     */
+    private void abandon(String key, LocalLock local) {
+        if (local.lock.tryLock()) {
+            try {
+                if (local.lock.getHoldCount() == 1 && local.redisHeld && !local.lock.hasQueuedThreads()) {
+                    local.handoffs = 0;
+                    local.redisHeld = false;
+                    lockUtil.unlockWithoutHold(key, owner);
+                }
+            } finally {
+                local.lock.unlock();
+            }
+        }
+        release(key);
+    }
+
+    private LocalLock retain(String key) {
+        return locks.compute(key, (k, local) -> {
+            if (local == null) {
+                local = new LocalLock();
+            }
+            local.refs++;
+            return local;
+        });
+    }
+
+    private void release(String key) {
+        locks.computeIfPresent(key, (k, local) -> --local.refs == 0 ? null : local);
+    }
+
+    /**
+     * 一个key的本地锁，redisHeld和handoffs只由持有本地锁的线程读写
+     */
+    private static class LocalLock {
+        /** 本地公平锁 */
+        private final ReentrantLock lock = new ReentrantLock(true);
+        /** 使用中(持有或等待)的线程数, 只在ConcurrentHashMap.compute中修改 */
+        private int refs;
+        /** 本JVM是否持有redis锁 */
+        private boolean redisHeld;
+        /** 连续本地交接次数 */
+        private int handoffs;
+    }
+}
@@ -0,0 +1,82 @@
+package cn.gc.redis.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 基于RedisLockUtil的java.util.concurrent.locks.Lock实现，由RedisLockFactory创建；
+ * 持有者为当前线程，可重入，持有期间由看门狗自动续期
+ **/
+public class RedisDistributedLock implements Lock {
+
+    private final String key;   // 锁名
+
+    private final RedisLockUtil lockUtil;
+
+    RedisDistributedLock(String key, RedisLockUtil lockUtil) {
+        this.key = key;
+        this.lockUtil = lockUtil;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (lockUtil.tryLockInterruptibly(key, lockUtil.ownerToken(), Long.MAX_VALUE, RedisLockUtil.AUTO_RENEW)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;   // 不响应中断, 拿到锁后恢复中断状态
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        while (!lockUtil.tryLockInterruptibly(key, lockUtil.ownerToken(), Long.MAX_VALUE, RedisLockUtil.AUTO_RENEW)) {
+            // 超时时间为Long.MAX_VALUE, 正常不会走到这里
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        return lockUtil.getLock(key, lockUtil.ownerToken(), RedisLockUtil.AUTO_RENEW);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return lockUtil.tryLockInterruptibly(key, lockUtil.ownerToken(), unit.toMillis(time), RedisLockUtil.AUTO_RENEW);
+    }
+
+    /**
+     * @throws IllegalMonitorStateException 当前线程未持有锁(或锁已丢失)
+     */
+    @Override
+    public void unlock() {
+        if (!lockUtil.releaseLock(key, lockUtil.ownerToken())) {
+            throw new IllegalMonitorStateException("当前线程未持有锁: " + key);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("分布式锁不支持Condition");
+    }
+}
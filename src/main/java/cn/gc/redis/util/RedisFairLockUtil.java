@@ -0,0 +1,175 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 公平锁，等待者在redis中按先来后到排队(list保存顺序，zset保存票据有效期)，只有队首能拿到锁；
+ * 释放锁时只通知队首，等待者宕机或放弃后票据过期被清理，不会堵住后面的人。不可重入，不要与RedisLockUtil混用同一个key
+ **/
+@Component
+public class RedisFairLockUtil {
+    private static Logger log = LoggerFactory.getLogger(RedisFairLockUtil.class);
+
+    private static final long DEFAULT_EXPIRE_TIME = 3000L;   // 默认key过期时间, 需考虑业务执行时长
+
+    private static final long TICKET_TIMEOUT = 5000L;   // 排队票据有效期, 等待者在此时间内没有刷新视为已放弃
+
+    private static final long TICKET_REFRESH_INTERVAL = TICKET_TIMEOUT / 3;   // 等待者最长多久刷新一次票据
+
+    // 加锁脚本: 清理队首过期票据，锁空闲且自己是队首(或无人排队)时加锁返回nil，否则排队/刷新票据并返回锁的剩余过期时间；
+    // 票据有效期按redis服务端时间计算
+    private static final RedisScript<Long> LOCK_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "while true do " +
+                    "local first = redis.call('lindex', KEYS[2], 0) " +
+                    "if not first then break end " +
+                    "local deadline = redis.call('zscore', KEYS[3], first) " +
+                    "if deadline and tonumber(deadline) > now then break end " +
+                    "redis.call('lpop', KEYS[2]) " +
+                    "redis.call('zrem', KEYS[3], first) " +
+            "end " +
+            "local first = redis.call('lindex', KEYS[2], 0) " +
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+                    "if not first or first == ARGV[1] then " +
+                        "if first then redis.call('lpop', KEYS[2]) redis.call('zrem', KEYS[3], ARGV[1]) end " +
+                        "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+                        "return nil " +
+                    "end " +
+                    "redis.call('publish', ARGV[4] .. first, KEYS[1]) " +   // 锁空闲但队首不是自己, 提醒队首
+            "end " +
+            "if not redis.call('zscore', KEYS[3], ARGV[1]) then redis.call('rpush', KEYS[2], ARGV[1]) end " +
+            "redis.call('zadd', KEYS[3], now + tonumber(ARGV[3]), ARGV[1]) " +
+            "redis.call('pexpire', KEYS[2], ARGV[3]) " +
+            "redis.call('pexpire', KEYS[3], ARGV[3]) " +
+            "return redis.call('pttl', KEYS[1])", Long.class);
+
+    // 解锁脚本: 校验持有者后删除，并只通知队首
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "redis.call('del', KEYS[1]) " +
+            "local first = redis.call('lindex', KEYS[2], 0) " +
+            "if first then redis.call('publish', ARGV[2] .. first, KEYS[1]) end " +
+            "return 1", Long.class);
+
+    // 放弃排队脚本: 删除自己的票据，如果锁空闲则通知新的队首
+    private static final RedisScript<Long> CANCEL_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('lrem', KEYS[2], 0, ARGV[1]) " +
+            "redis.call('zrem', KEYS[3], ARGV[1]) " +
+            "local first = redis.call('lindex', KEYS[2], 0) " +
+            "if first and redis.call('exists', KEYS[1]) == 0 then redis.call('publish', ARGV[2] .. first, KEYS[1]) end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private RedisTemplateUtil redisTemplate;
+
+    @Autowired
+    private RedisLockSubscriber lockSubscriber;
+
+    @Autowired
+    private RedisLockWatchdog watchdog;
+
+    @Autowired
+    private RedisLockUtil lockUtil;
+
+    /**
+     * 按排队顺序获取锁，持有者为当前线程
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @return true 获取成功，false获取失败
+     */
+    public boolean tryLock(String key, long timeout) {
+        return tryLock(key, lockUtil.ownerToken(), timeout, DEFAULT_EXPIRE_TIME);
+    }
+
+    /**
+     * 按排队顺序获取锁
+     *
+     * @param key        锁名
+     * @param value      锁value, 同时作为排队票据
+     * @param timeout    获取锁的超时时间 单位ms
+     * @param expireTime 锁的超时时间, 传RedisLockUtil.AUTO_RENEW由看门狗自动续期, 传RedisLockUtil.TUNED按统计的持锁时长取值
+     * @return true 获取成功，false获取失败
+     */
+    public boolean tryLock(String key, String value, long timeout, long expireTime) {
+        if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value)) {
+            return false;
+        }
+        long startTime = System.currentTimeMillis();  // 开始时间戳
+        List<String> keys = keys(key);
+        String channelPrefix = RedisLockSubscriber.channel(waitName(key, ""));
+        boolean autoRenew = expireTime == RedisLockUtil.AUTO_RENEW;
+        long leaseTime = autoRenew ? RedisLockWatchdog.LEASE_TIME : lockUtil.resolveExpireTime(key, expireTime);
+        boolean locked = false;
+        try {
+            locked = lockSubscriber.tryAcquire(waitName(key, value), timeout, () -> {
+                Long ttl = redisTemplate.execute(LOCK_SCRIPT, keys, value, leaseTime, TICKET_TIMEOUT, channelPrefix);
+                // 排队期间要定期刷新票据, 最长等待时间不超过刷新间隔
+                return ttl == null ? null : ttl < 0 ? TICKET_REFRESH_INTERVAL : Math.min(ttl, TICKET_REFRESH_INTERVAL);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
+            log.error(e.getMessage());
+        } finally {
+            if (!locked) {
+                redisTemplate.execute(CANCEL_SCRIPT, keys, value, channelPrefix);
+                log.info("{}-----------{}-获取锁超时: {}", LocalDateTime.now(), Thread.currentThread().getName(), System.currentTimeMillis() - startTime);
+            }
+        }
+        if (locked && autoRenew) {
+            watchdog.watch(key, value);
+        }
+        return locked;
+    }
+
+    /**
+     * 释放当前线程持有的锁
+     *
+     * @param key 锁名
+     * @return true 释放成功，false锁不存在或不是当前线程持有
+     */
+    public boolean releaseLock(String key) {
+        return releaseLock(key, lockUtil.ownerToken());
+    }
+
+    /**
+     * 释放锁并通知队首
+     *
+     * @param key   锁名
+     * @param value 加锁时的value
+     * @return true 释放成功，false锁不存在或不是该value持有
+     */
+    public boolean releaseLock(String key, String value) {
+        if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value)) {
+            return false;
+        }
+        watchdog.unwatch(key, value);
+        Long result = redisTemplate.execute(UNLOCK_SCRIPT, keys(key), value, RedisLockSubscriber.channel(waitName(key, "")));
+        boolean del = result != null && result == 1L;
+        log.info("{}-----------{}-是否释放成功：{}", LocalDateTime.now(), Thread.currentThread().getName(), del);
+        return del;
+    }
+
+    private List<String> keys(String key) {
+        boolean cluster = redisTemplate.isCluster();
+        return Arrays.asList(key, RedisKeys.derived(key, "fair:queue", cluster), RedisKeys.derived(key, "fair:timeout", cluster));
+    }
+
+    /**
+     * 等待者的通知名，释放时只通知队首对应的频道
+     */
+    private static String waitName(String key, String value) {
+        return key + ":fair:" + value;
+    }
+}
@@ -0,0 +1,94 @@
+package cn.gc.redis.util;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.util.Collection;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 锁相关key的构造，兼容redis cluster的hash tag规则(只对第一个{}之间的内容计算slot)；
+ * 锁内部的辅助key(计数器、队列、读者集合等)与锁名落在同一slot，脚本才能在集群中执行；
+ * 需要一起加锁的多把锁用tagged构造，互不相关的锁不带tag，按锁名均匀分布到各节点
+ **/
+public final class RedisKeys {
+
+    public static final int SLOT_COUNT = 16384;   // 集群slot总数
+
+    private RedisKeys() {
+    }
+
+    /**
+     * 同一组的锁名，组名作为hash tag，同组的锁落在同一slot，可以用tryLockAll一次获取
+     *
+     * @param group 组名，如订单号
+     * @param name  组内锁名
+     * @return {group}:name
+     */
+    public static String tagged(String group, String name) {
+        return "{" + group + "}:" + name;
+    }
+
+    /**
+     * 锁的辅助key，与锁名在同一slot: 锁名已带hash tag时直接拼接后缀(tag不变)，否则以整个锁名作为hash tag；
+     * 锁名不带有效hash tag却含有'}'(如a}b、{}x)时无法构造同slot的辅助key，单机直接拼接后缀，集群中拒绝
+     *
+     * @param key     锁名
+     * @param suffix  后缀
+     * @param cluster 是否连接的是redis cluster
+     * @return 辅助key
+     * @throws IllegalArgumentException 集群中锁名含'}'但没有有效的hash tag
+     */
+    public static String derived(String key, String suffix, boolean cluster) {
+        if (hasHashTag(key)) {
+            return key + ":" + suffix;
+        }
+        if (key.indexOf('}') >= 0) {   // 整个锁名作为tag时, 其中的'}'会提前结束tag
+            if (cluster) {
+                throw new IllegalArgumentException("锁名含'}'但没有有效的hash tag, 请去掉'}'或用RedisKeys.tagged构造: " + key);
+            }
+            return key + ":" + suffix;   // 单机不区分slot
+        }
+        return "{" + key + "}:" + suffix;
+    }
+
+    /**
+     * key是否带有效的hash tag，与集群计算slot的规则一致: 第一个'{'之后的第一个'}'，中间不能为空
+     */
+    public static boolean hasHashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return false;
+        }
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1;
+    }
+
+    /**
+     * key所在的slot
+     *
+     * @param key key
+     * @return 0 ~ SLOT_COUNT-1
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    /**
+     * 多个key是否在同一slot
+     *
+     * @param keys keys
+     * @return true 同一slot
+     */
+    public static boolean sameSlot(Collection<String> keys) {
+        int slot = -1;
+        for (String key : keys) {
+            int current = slot(key);
+            if (slot >= 0 && current != slot) {
+                return false;
+            }
+            slot = current;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 按key前缀统计持锁时长，给出建议的锁过期时间: p99.9 * (1 + MARGIN_RATIO) + MARGIN，
+ * 限制在[MIN_LEASE, MAX_LEASE]之间。过期时间太长持有者宕机后锁迟迟不释放，太短业务没执行完锁就过期；
+ * 样本不足MIN_SAMPLES时使用调用方给的默认值。加锁时显式传RedisLockUtil.TUNED才按建议值加锁。
+ * 建议值在释放锁时每REFRESH_SAMPLES个样本重新计算一次并缓存，加锁时只读缓存；
+ * 最多统计MAX_PREFIXES个前缀，超出后新前缀不再统计，按默认值加锁
+ **/
+@Component
+public class RedisLeaseTuner {
+    private static Logger log = LoggerFactory.getLogger(RedisLeaseTuner.class);
+
+    private static final double QUANTILE = 0.999;   // 按p99.9的持锁时长估算
+
+    private static final double MARGIN_RATIO = 0.5;   // 相对余量, 吸收GC停顿、网络抖动
+
+    private static final long MARGIN = 100L;   // 绝对余量 单位ms, 持锁时间很短时也留出一次往返的时间
+
+    private static final long MIN_LEASE = 500L;   // 建议值下限
+
+    private static final long MAX_LEASE = 30000L;   // 建议值上限, 更长的任务应使用AUTO_RENEW
+
+    private static final long MIN_SAMPLES = 100L;   // 样本数达到后才给出建议
+
+    private static final long REFRESH_SAMPLES = 100L;   // 每记录这么多个样本重新计算一次建议值
+
+    static final int MAX_PREFIXES = 1024;   // 统计的前缀个数上限, 每个前缀约4KB
+
+    private final ConcurrentMap<String, PrefixStats> stats = new ConcurrentHashMap<>();   // key前缀 -> 持锁时长统计
+
+    private volatile boolean overflowLogged;   // 前缀超出上限的告警只打印一次
+
+    /**
+     * key的统计前缀: 最后一个':'之前的部分，没有':'时为key本身，如order:123 -> order
+     *
+     * @param key 锁名
+     * @return 前缀
+     */
+    public static String prefix(String key) {
+        int index = key.lastIndexOf(':');
+        return index > 0 ? key.substring(0, index) : key;
+    }
+
+    /**
+     * 记录一次持锁时长，释放锁时调用
+     *
+     * @param key    锁名
+     * @param millis 持锁时长 单位ms
+     */
+    public void record(String key, long millis) {
+        String prefix = prefix(key);
+        PrefixStats prefixStats = stats.get(prefix);
+        if (prefixStats == null) {
+            if (stats.size() >= MAX_PREFIXES) {   // 并发时可能略超上限, 只需保证不会无限增长
+                if (!overflowLogged) {
+                    overflowLogged = true;
+                    log.warn("持锁时长统计的前缀数已达上限{}, 新前缀不再统计: {}", MAX_PREFIXES, prefix);
+                }
+                return;
+            }
+            prefixStats = stats.computeIfAbsent(prefix, k -> new PrefixStats());
+        }
+        long count = prefixStats.histogram.record(millis);
+        if (count >= MIN_SAMPLES && count % REFRESH_SAMPLES == 0) {
+            prefixStats.lease = suggest(prefixStats.histogram);
+        }
+    }
+
+    /**
+     * 建议的锁过期时间，只读缓存的建议值
+     *
+     * @param key          锁名
+     * @param defaultLease 样本不足时返回的值
+     * @return 锁过期时间 单位ms
+     */
+    public long suggestLease(String key, long defaultLease) {
+        PrefixStats prefixStats = stats.get(prefix(key));
+        long lease = prefixStats == null ? 0L : prefixStats.lease;
+        return lease > 0L ? lease : defaultLease;
+    }
+
+    /**
+     * 全部前缀的建议值，用于观察或写回配置
+     *
+     * @return key前缀 -> 建议的锁过期时间(样本不足的前缀不返回)
+     */
+    public Map<String, Long> suggestions() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, PrefixStats> entry : stats.entrySet()) {
+            long lease = entry.getValue().lease;
+            if (lease > 0L) {
+                result.put(entry.getKey(), lease);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清空统计，业务特征变化后重新采样
+     */
+    public void reset() {
+        stats.clear();
+        overflowLogged = false;
+    }
+
+    private static long suggest(LeaseHistogram histogram) {
+        long lease = (long) (histogram.percentile(QUANTILE) * (1 + MARGIN_RATIO)) + MARGIN;
+        return Math.min(MAX_LEASE, Math.max(MIN_LEASE, lease));
+    }
+
+    /**
+     * 一个前缀的直方图和缓存的建议值
+     */
+    private static class PrefixStats {
+        /** 持锁时长直方图 */
+        private final LeaseHistogram histogram = new LeaseHistogram();
+        /** 缓存的建议值, 样本不足时为0 */
+        private volatile long lease;
+    }
+}
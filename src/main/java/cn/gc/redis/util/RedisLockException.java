@@ -0,0 +1,19 @@
+package cn.gc.redis.util;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 加锁失败(超时)时抛出，用于无法通过返回值表达获取结果的场景
+ **/
+public class RedisLockException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisLockException(String message) {
+        super(message);
+    }
+
+    public RedisLockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
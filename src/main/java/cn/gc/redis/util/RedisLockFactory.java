@@ -0,0 +1,101 @@
+package cn.gc.redis.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 分布式锁工厂，同一个key复用同一个锁对象，热点key加锁时不再创建对象
+ **/
+@Component
+public class RedisLockFactory {
+
+    private static final int MAX_CACHED_LOCKS = 10000;   // 最多缓存多少个锁对象, 超出后不再缓存, 防止key过多占满内存
+
+    private static final long DEFAULT_EXPIRE_TIME = 3000L;   // 读写锁、信号量许可默认过期时间, 需考虑业务执行时长
+
+    @Autowired
+    private RedisLockUtil lockUtil;
+
+    @Autowired
+    private RedisTemplateUtil redisTemplate;
+
+    @Autowired
+    private RedisLockSubscriber lockSubscriber;
+
+    private final ConcurrentMap<String, RedisDistributedLock> locks = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RedisReadWriteLock> readWriteLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 获取key对应的锁，锁对象本身无状态，超出缓存上限时直接新建
+     *
+     * @param key 锁名
+     * @return 锁
+     */
+    public RedisDistributedLock getLock(String key) {
+        RedisDistributedLock lock = locks.get(key);
+        if (lock != null) {
+            return lock;
+        }
+        if (locks.size() >= MAX_CACHED_LOCKS) {
+            return new RedisDistributedLock(key, lockUtil);
+        }
+        return locks.computeIfAbsent(key, k -> new RedisDistributedLock(k, lockUtil));
+    }
+
+    /**
+     * 获取key对应的读写锁，过期时间为默认值
+     *
+     * @param key 锁名
+     * @return 读写锁
+     */
+    public RedisReadWriteLock getReadWriteLock(String key) {
+        RedisReadWriteLock lock = readWriteLocks.get(key);
+        if (lock != null) {
+            return lock;
+        }
+        if (readWriteLocks.size() >= MAX_CACHED_LOCKS) {
+            return getReadWriteLock(key, DEFAULT_EXPIRE_TIME);
+        }
+        return readWriteLocks.computeIfAbsent(key, k -> getReadWriteLock(k, DEFAULT_EXPIRE_TIME));
+    }
+
+    /**
+     * 创建指定过期时间的读写锁(不缓存)
+     *
+     * @param key       锁名
+     * @param leaseTime 锁的过期时间 单位ms
+     * @return 读写锁
+     */
+    public RedisReadWriteLock getReadWriteLock(String key, long leaseTime) {
+        return new RedisReadWriteLock(key, leaseTime, redisTemplate, lockSubscriber, lockUtil);
+    }
+
+    /**
+     * 创建信号量，许可租约为默认过期时间
+     *
+     * @param key     信号量名
+     * @param permits 许可总数, 集群内所有使用该key的地方需保持一致
+     * @return 信号量
+     */
+    public RedisSemaphore getSemaphore(String key, int permits) {
+        return getSemaphore(key, permits, DEFAULT_EXPIRE_TIME);
+    }
+
+    /**
+     * 创建信号量
+     *
+     * @param key       信号量名
+     * @param permits   许可总数, 集群内所有使用该key的地方需保持一致
+     * @param leaseTime 许可的租约时间 单位ms
+     * @return 信号量
+     */
+    public RedisSemaphore getSemaphore(String key, int permits, long leaseTime) {
+        return new RedisSemaphore(key, permits, leaseTime, redisTemplate, lockSubscriber, lockUtil);
+    }
+}
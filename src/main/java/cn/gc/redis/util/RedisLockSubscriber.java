@@ -0,0 +1,324 @@
+package cn.gc.redis.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 锁释放通知订阅，整个JVM共用一个模式订阅连接(见RedisConfiguration)，
+ * 释放锁时向 CHANNEL_PREFIX + key 发布消息，本地等待者收到后立即重试，代替sleep轮询。
+ * 等待路径只用Semaphore挂起，登记、取消和唤醒都是无锁操作(没有synchronized)，可以放在虚拟线程上大量等待；
+ * 同一把锁的等待者按登记顺序排队，通知交给排在最前面且仍在等待的一个，收到通知却没有重试就离开的等待者把通知交给下一个；
+ * 配置redis.lock.max-in-flight后，同时访问redis的加锁尝试数被限制在该值以内，等待者再多也不需要放大连接池
+ **/
+@Component
+public class RedisLockSubscriber implements MessageListener {
+
+    public static final String CHANNEL_PREFIX = "redis-lock:channel:";   // 释放通知频道前缀
+
+    public static final String CHANNEL_PATTERN = CHANNEL_PREFIX + "*";  // 订阅的频道模式
+
+    public static final String WAKE_ALL = "*";   // 消息内容为此值时唤醒全部等待者, 用于可被多个持有者共享的锁(读锁、信号量)
+
+    private static final byte[] WAKE_ALL_BYTES = WAKE_ALL.getBytes(StringUtils.UTF8);
+
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Waiter>> waiters = new ConcurrentHashMap<>();    // 锁名 -> 按登记序号排队的本地等待者, 增删O(log n)且无锁
+
+    private final AtomicLong tickets = new AtomicLong();   // 登记序号, 同一把锁上按序号先来先唤醒
+
+    @Value("${redis.lock.max-in-flight:0}")
+    private int maxInFlight;   // 同时在途的加锁尝试上限, 0为不限制
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        if (maxInFlight > 0) {
+            inFlight = new Semaphore(maxInFlight);
+        }
+    }
+
+    /**
+     * 锁对应的释放通知频道
+     *
+     * @param key 锁名
+     * @return 频道名
+     */
+    public static String channel(String key) {
+        return CHANNEL_PREFIX + key;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getChannel(), StringUtils.UTF8).substring(CHANNEL_PREFIX.length());
+        if (!Arrays.equals(WAKE_ALL_BYTES, message.getBody())) {
+            wakeNext(key, 0L);  // 只唤醒一个等待者，避免本地惊群
+            return;
+        }
+        ConcurrentNavigableMap<Long, Waiter> queue = waiters.get(key);
+        if (queue != null) {
+            for (Waiter waiter : queue.values()) {   // 弱一致遍历, 不加锁也不复制
+                waiter.wake();
+            }
+        }
+    }
+
+    /**
+     * 把一次释放通知交给序号在ticket之后、排在最前面且仍在等待的登记；已不再等待的登记顺便移除
+     *
+     * @param key    锁名
+     * @param ticket 从该序号之后开始找，0为从队首开始
+     */
+    public void wakeNext(String key, long ticket) {
+        ConcurrentNavigableMap<Long, Waiter> queue = waiters.get(key);
+        if (queue == null) {
+            return;
+        }
+        for (Map.Entry<Long, Waiter> entry : queue.tailMap(ticket, false).entrySet()) {
+            if (entry.getValue().wake()) {
+                return;
+            }
+            unsubscribe(key, entry.getKey());
+        }
+    }
+
+    /**
+     * 尝试获取，失败后挂起等待释放通知或锁自然过期，直到成功或超时
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param attempt 一次获取尝试，返回null表示成功，否则返回锁的剩余过期时间(ms，小于0表示未知)
+     * @return true 获取成功，false获取失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryAcquire(String key, long timeout, Supplier<Long> attempt) throws InterruptedException {
+        return tryAcquire(Collections.singletonList(key), timeout, attempt);
+    }
+
+    /**
+     * 同时等待多把锁，其中任意一把的释放通知都会触发重试，用于一次获取多把锁；
+     * 因其他锁仍被占用而没拿到时，把用掉的通知交给那把锁上排在后面的等待者，单锁等待者不会因此错过释放
+     *
+     * @param keys    锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param attempt 一次获取尝试，返回null表示成功，否则返回锁的剩余过期时间(ms，小于0表示未知)
+     * @return true 获取成功，false获取失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryAcquire(Collection<String> keys, long timeout, Supplier<Long> attempt) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        Long ttl = attempt(attempt);
+        if (ttl == null) {
+            return true;
+        }
+        if (timeout <= 0) {
+            return false;
+        }
+        BlockingWaiter waiter = new BlockingWaiter();
+        long ticket = tickets.incrementAndGet();
+        boolean multi = keys.size() > 1;
+        for (String key : keys) {
+            subscribe(key, ticket, multi ? () -> waiter.wake(key) : waiter);
+        }
+        boolean locked = false;
+        try {
+            // 订阅后再试一次，防止首次尝试与订阅之间的释放通知丢失
+            while (true) {
+                waiter.consume();
+                List<String> signalled = multi ? waiter.signalledKeys() : Collections.<String>emptyList();
+                ttl = attempt(attempt);
+                if (ttl == null) {
+                    locked = true;
+                    return true;
+                }
+                for (String key : signalled) {   // 这把锁释放了但其他锁还被占用, 通知转交给这把锁上的下一个等待者
+                    wakeNext(key, ticket);
+                }
+                long remain = timeout - (System.currentTimeMillis() - startTime);
+                if (remain <= 0) {
+                    return false;
+                }
+                // 持有者宕机时不会有通知，最多等到锁过期
+                waiter.await(ttl >= 0 && ttl < remain ? Math.max(ttl, 1L) : remain);
+            }
+        } finally {
+            boolean pending = waiter.close();
+            Collection<String> unused = multi ? waiter.signalledKeys() : pending ? keys : Collections.<String>emptyList();
+            for (String key : keys) {
+                unsubscribe(key, ticket);
+            }
+            if (!locked) {
+                for (String key : unused) {   // 收到的通知没用上, 交给下一个等待者
+                    wakeNext(key, ticket);
+                }
+            }
+        }
+    }
+
+    /**
+     * 执行一次加锁尝试，配置了在途上限时先取得许可
+     */
+    private Long attempt(Supplier<Long> attempt) throws InterruptedException {
+        Semaphore permits = inFlight;
+        if (permits == null) {
+            return attempt.get();
+        }
+        permits.acquire();
+        try {
+            return attempt.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 登记等待者，排在这把锁已有的等待者之后，锁释放时在监听线程上回调
+     *
+     * @param key    锁名
+     * @param waiter 唤醒回调
+     * @return 登记序号，取消登记和转交通知时使用
+     */
+    public long subscribe(String key, Waiter waiter) {
+        long ticket = tickets.incrementAndGet();
+        subscribe(key, ticket, waiter);
+        return ticket;
+    }
+
+    private void subscribe(String key, long ticket, Waiter waiter) {
+        while (true) {
+            ConcurrentNavigableMap<Long, Waiter> queue = waiters.get(key);
+            if (queue == null) {
+                queue = waiters.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>());
+            }
+            queue.put(ticket, waiter);
+            if (waiters.get(key) == queue) {   // 加入后队列仍在map中才算登记成功, 之后的清理会看到它非空
+                return;
+            }
+            queue.remove(ticket);   // 加入的是刚被清理掉的空队列, 重新登记
+        }
+    }
+
+    /**
+     * 取消登记
+     *
+     * @param key    锁名
+     * @param ticket 登记序号
+     */
+    public void unsubscribe(String key, long ticket) {
+        ConcurrentNavigableMap<Long, Waiter> queue = waiters.get(key);
+        if (queue == null || queue.remove(ticket) == null || !queue.isEmpty()) {
+            return;
+        }
+        // 最后一个等待者离开时清理key, 判空和移除是原子的, 期间有人加入就保留
+        waiters.computeIfPresent(key, (k, current) -> current == queue && current.isEmpty() ? null : current);
+    }
+
+    /**
+     * 等待释放通知的登记
+     */
+    @FunctionalInterface
+    public interface Waiter {
+        /**
+         * 收到释放通知，在监听线程上回调，不能有阻塞操作
+         *
+         * @return true 接收了通知，之后会重试；false 已不再等待(超时、取消或已完成)，通知交给下一个登记
+         */
+        boolean wake();
+    }
+
+    /**
+     * tryAcquire的等待者，挂起在Semaphore上；记录是否有还没用于重试的通知，离开时据此决定是否转交。
+     * 同时等待多把锁时还记下是哪几把锁的通知，没拿到锁时只转交这几把
+     */
+    private static final class BlockingWaiter implements Waiter {
+        private static final int WAITING = 0;
+        private static final int SIGNALLED = 1;   // 收到了通知, 还没有据此重试
+        private static final int CLOSED = 2;
+
+        private final Semaphore latch = new Semaphore(0);
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final Queue<String> signalled = new ConcurrentLinkedQueue<>();   // 收到通知的锁名, 只在等待多把锁时使用
+
+        /**
+         * 等待多把锁时收到其中一把的通知，先记下锁名再唤醒，重试前取走的锁名一定在这次重试之前释放
+         */
+        boolean wake(String key) {
+            if (state.get() == CLOSED) {
+                return false;
+            }
+            signalled.offer(key);
+            return wake();
+        }
+
+        /**
+         * 取走收到通知的锁名，在consume之后调用
+         */
+        List<String> signalledKeys() {
+            List<String> keys = new ArrayList<>();
+            String key;
+            while ((key = signalled.poll()) != null) {
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+
+        @Override
+        public boolean wake() {
+            while (true) {
+                int current = state.get();
+                if (current != WAITING) {
+                    return current == SIGNALLED;   // 已有待处理的通知时合并, 反正之后会重试
+                }
+                if (state.compareAndSet(WAITING, SIGNALLED)) {
+                    latch.release();
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 重试前调用，之前收到的通知由这次重试处理
+         */
+        void consume() {
+            latch.drainPermits();
+            state.compareAndSet(SIGNALLED, WAITING);
+        }
+
+        void await(long wait) throws InterruptedException {
+            latch.tryAcquire(wait, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 不再等待
+         *
+         * @return true 有收到但没用于重试的通知
+         */
+        boolean close() {
+            return state.getAndSet(CLOSED) == SIGNALLED;
+        }
+    }
+}
@@ -4,14 +4,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * @Author: gc
  * @Date: 2019/7/20
- * @Description: redis锁工具类
+ * @Description: redis锁工具类；每个锁名有一个fencing计数器{key}:fencing，
+ * 最后一次加锁后FENCING_TTL内不再加锁就过期，锁名带id(order:1、order:2...)时计数器个数只随一天内用到的锁名增长，不会永久累积
  **/
 @Component
 public class RedisLockUtil {
@@ -20,6 +36,22 @@ public class RedisLockUtil {
     @Autowired
     private RedisTemplateUtil redisTemplate;
 
+    @Autowired
+    private RedisLockSubscriber lockSubscriber;
+
+    @Autowired
+    private RedisLockWatchdog watchdog;
+
+    @Autowired
+    private RedisSlotStats slotStats;
+
+    @Autowired
+    private RedisLeaseTuner leaseTuner;
+
+    public static final long AUTO_RENEW = -1L;   // 锁的过期时间传此值时由看门狗自动续期, 直到释放
+
+    public static final long TUNED = -2L;   // 锁的过期时间显式传此值时按该类key统计的持锁时长取值(见RedisLeaseTuner), 样本不足时为DEFAULT_EXPIRE_TIME; 未指定过期时间的方法不使用
+
     private static final long LOCK_TRY_INTERVAL = 50L;// 默认多久尝试获取一次锁, 需考虑redis服务器压力
 
     private static final long LOCK_TRY_TIMEOUT = 200L;// 默认尝试多久, 需考虑并发压力
@@ -32,7 +64,120 @@ public class RedisLockUtil {
 
     private static final String SET_WITH_EXPIRE_TIME = "PX";    // 当设置为PX，表示设置一个过期时间
 
-    private static final String DEFAULT_VALUE = "v"; // set方法的value字段, 这里默认设置v
+    static final long FENCING_TTL = TimeUnit.DAYS.toMillis(1);   // fencing计数器最后一次加锁后的保留时间, 过期后重建的计数器从服务端微秒时间起算
+
+    private final String instanceId = UUID.randomUUID().toString();   // 当前实例标识, 与线程id组成默认的锁value
+
+    private final ConcurrentMap<String, RetryStrategy> retryStrategies = new ConcurrentHashMap<>();   // key前缀 -> 重试策略
+
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(ThreadState::new);  // 当前线程持有的锁及持有者标识
+
+    private final Consumer<LockHandle> handleReleaser = this::closeHandle;   // acquire发放的凭证close时调用
+
+    // 加锁脚本: 成功时在同一脚本内递增fencing计数器并续期ARGV[3]毫秒，返回{1, fencing token}；
+    // 失败返回{0, 锁的剩余过期时间}，供等待者决定最长挂起多久。
+    // 计数器不存在(首次或闲置过期)时以服务端当前微秒时间为初值: 过期前发出的token不超过建立时间+加锁次数，
+    // 单个锁名每微秒不到一次加锁，重建时的时间必然更大，只要服务端时钟回拨不超过ARGV[3]，token就单调递增
+    static final RedisScript<List<Object>> LOCK_SCRIPT = listScript(
+            "redis.replicate_commands() " +
+                    "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+                        "if redis.call('exists', KEYS[2]) == 0 then " +
+                            "local time = redis.call('time') " +
+                            "redis.call('set', KEYS[2], time[1] .. string.format('%06d', tonumber(time[2]))) " +
+                        "end " +
+                        "local token = redis.call('incr', KEYS[2]) " +
+                        "redis.call('pexpire', KEYS[2], ARGV[3]) " +
+                        "return {1, token} " +
+                    "end " +
+                    "return {0, redis.call('pttl', KEYS[1])}");
+
+    // 解锁脚本: 校验持有者后删除并通知等待者，一次往返完成；脚本sha1只计算一次，执行时先EVALSHA，服务端无缓存(NOSCRIPT)再回退EVAL
+    static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end " +
+                    "redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) " +
+                    "return 1", Long.class);
+
+    // 批量加锁脚本: 任意一个key已被占用则什么都不做并返回它的剩余过期时间，否则全部加锁返回nil
+    private static final RedisScript<Long> LOCK_ALL_SCRIPT = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do " +
+                    "if redis.call('exists', key) == 1 then return redis.call('pttl', key) end " +
+            "end " +
+            "for _, key in ipairs(KEYS) do redis.call('set', key, ARGV[1], 'PX', ARGV[2]) end " +
+            "return nil", Long.class);
+
+    // 批量解锁脚本: 只删除value一致的key并逐个通知等待者，返回释放的个数
+    private static final RedisScript<Long> UNLOCK_ALL_SCRIPT = new DefaultRedisScript<>(
+            "local released = 0 " +
+            "for _, key in ipairs(KEYS) do " +
+                    "if redis.call('get', key) == ARGV[1] then " +
+                        "redis.call('del', key) " +
+                        "redis.call('publish', ARGV[2] .. key, key) " +
+                        "released = released + 1 " +
+                    "end " +
+            "end " +
+            "return released", Long.class);
+
+    /**
+     * 返回多值回复的脚本，结果类型只能用List.class声明，在这里统一转换为带元素类型的List
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<Object>> listScript(String script) {
+        return new DefaultRedisScript<>(script, (Class<List<Object>>) (Class<?>) List.class);
+    }
+
+    /**
+     * 当前线程的默认锁value(持有者标识)，tryLock系列及releaseLock(key)使用
+     *
+     * @return 实例标识:线程id
+     */
+    public String ownerToken() {
+        return threadState.get().ownerToken;
+    }
+
+    /**
+     * 锁的fencing计数器，与锁在同一slot
+     *
+     * @param key     锁名
+     * @param cluster 是否连接的是redis cluster
+     * @return 计数器key
+     */
+    static String fencingKey(String key, boolean cluster) {
+        return RedisKeys.derived(key, "fencing", cluster);
+    }
+
+    /**
+     * 加锁脚本的keys
+     */
+    static List<String> lockKeys(String key, boolean cluster) {
+        return Arrays.asList(key, fencingKey(key, cluster));
+    }
+
+    /**
+     * 加锁脚本结果是否为加锁成功
+     */
+    static boolean isLocked(List<?> result) {
+        return result != null && ((Number) result.get(0)).longValue() == 1L;
+    }
+
+    /**
+     * 加锁脚本结果的第二项: 成功时为fencing token，失败时为锁的剩余过期时间
+     */
+    static long resultValue(List<?> result) {
+        return ((Number) result.get(1)).longValue();
+    }
+
+    /**
+     * 当前线程持有锁时加锁拿到的fencing token，每次成功加锁(重入除外)都比之前的大；
+     * 写下游存储时带上该值，存储端拒绝比已见过的更小的token，锁过期后的旧持有者就写不进去
+     *
+     * @param key 锁名
+     * @return fencing token，当前线程未持有或锁已过期时为-1
+     */
+    public long fencingToken(String key) {
+        LockHold hold = threadState.get().holds.get(key);
+        return hold != null && isHeld(key, hold) ? hold.fencingToken : -1L;
+    }
 
     /**
      * 尝试获取全局锁
@@ -41,7 +186,7 @@ public class RedisLockUtil {
      * @return true 获取成功，false获取失败
      */
     public boolean tryLock(String key) {
-        return getLock(key, DEFAULT_VALUE, LOCK_TRY_TIMEOUT, LOCK_TRY_INTERVAL, DEFAULT_EXPIRE_TIME);
+        return getLock(key, ownerToken(), LOCK_TRY_TIMEOUT, retryStrategy(key), DEFAULT_EXPIRE_TIME);
     }
 
     /**
@@ -52,7 +197,7 @@ public class RedisLockUtil {
      * @return true 获取成功，false获取失败
      */
     public boolean tryLock(String key, long timeout) {
-        return getLock(key, DEFAULT_VALUE, timeout, LOCK_TRY_INTERVAL, DEFAULT_EXPIRE_TIME);
+        return getLock(key, ownerToken(), timeout, retryStrategy(key), DEFAULT_EXPIRE_TIME);
     }
 
     /**
@@ -64,7 +209,7 @@ public class RedisLockUtil {
      * @return true 获取成功，false获取失败
      */
     public boolean tryLock(String key, long timeout, long tryInterval) {
-        return getLock(key, DEFAULT_VALUE, timeout, tryInterval, DEFAULT_EXPIRE_TIME);
+        return getLock(key, ownerToken(), timeout, tryInterval, DEFAULT_EXPIRE_TIME);
     }
 
     /**
@@ -73,11 +218,11 @@ public class RedisLockUtil {
      * @param key            锁名
      * @param timeout        获取锁的超时时间
      * @param tryInterval    多少毫秒尝试获取一次
-     * @param lockExpireTime 锁的过期
+     * @param lockExpireTime 锁的过期, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
      * @return true 获取成功，false获取失败
      */
     public boolean tryLock(String key, long timeout, long tryInterval, long lockExpireTime) {
-        return getLock(key, DEFAULT_VALUE, timeout, tryInterval, lockExpireTime);
+        return getLock(key, ownerToken(), timeout, tryInterval, lockExpireTime);
     }
 
     /**
@@ -87,7 +232,7 @@ public class RedisLockUtil {
      * @return true 获取成功，false获取失败
      */
     public boolean onceTryLock(String key) {
-        return getLock(key, DEFAULT_VALUE, DEFAULT_EXPIRE_TIME);
+        return getLock(key, ownerToken(), DEFAULT_EXPIRE_TIME);
     }
 
     /**
@@ -98,7 +243,93 @@ public class RedisLockUtil {
      * @return true 获取成功，false获取失败
      */
     public boolean onceTryLock(String key, long lockExpireTime) {
-        return getLock(key, DEFAULT_VALUE, lockExpireTime);
+        return getLock(key, ownerToken(), lockExpireTime);
+    }
+
+    /**
+     * 获取锁并返回凭证，配合try-with-resources使用，close时释放:
+     * <pre>
+     * try (LockHandle lock = redisLockUtil.acquire(key, 200)) {
+     *     // 业务逻辑, 写下游时可带上lock.getFencingToken()
+     * }
+     * </pre>
+     * 没有竞争时只有一次脚本调用，被占用时等待释放通知；凭证只能在加锁线程内close，
+     * 其他线程close抛出IllegalMonitorStateException(与ReentrantLock.unlock一致)
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @return 锁凭证
+     * @throws RedisLockException 获取超时或等待时被中断
+     */
+    public LockHandle acquire(String key, long timeout) {
+        return acquire(key, timeout, DEFAULT_EXPIRE_TIME);
+    }
+
+    /**
+     * 获取锁并返回凭证，配合try-with-resources使用，close时释放
+     *
+     * @param key        锁名
+     * @param timeout    获取锁的超时时间 单位ms
+     * @param expireTime 锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
+     * @return 锁凭证
+     * @throws RedisLockException 获取超时或等待时被中断
+     */
+    public LockHandle acquire(String key, long timeout, long expireTime) {
+        if (StringUtils.isEmpty(key)) {
+            throw new IllegalArgumentException("锁名不能为空");
+        }
+        ThreadState state = threadState.get();
+        if (tryAcquire(key, state.ownerToken, expireTime) != null) {   // 快速路径失败才进入等待
+            boolean locked;
+            try {
+                locked = tryLockInterruptibly(key, state.ownerToken, timeout, expireTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
+                throw new RedisLockException("等待锁时被中断: " + key, e);
+            }
+            if (!locked) {
+                throw new RedisLockException("获取锁超时: " + key);
+            }
+        }
+        return new ThreadHandle(key, state, state.holds.get(key));
+    }
+
+    /**
+     * acquire发放的凭证close时释放锁；持有记录已被releaseLock释放(当前记录不是发放时的那一份)时，旧凭证不再释放任何锁
+     */
+    private void closeHandle(LockHandle handle) {
+        ThreadHandle threadHandle = (ThreadHandle) handle;
+        if (threadHandle.state.holds.get(handle.getKey()) == threadHandle.hold) {
+            releaseLock(handle.getKey(), handle.getOwner());
+        }
+    }
+
+    /**
+     * 为某一类锁注册重试策略，未指定重试间隔的tryLock按最长匹配的前缀选用
+     *
+     * @param prefix   key前缀
+     * @param strategy 重试策略
+     */
+    public void registerRetryStrategy(String prefix, RetryStrategy strategy) {
+        retryStrategies.put(prefix, strategy);
+    }
+
+    /**
+     * key对应的重试策略，没有注册时为固定间隔LOCK_TRY_INTERVAL
+     *
+     * @param key 锁名
+     * @return 重试策略
+     */
+    public RetryStrategy retryStrategy(String key) {
+        RetryStrategy strategy = null;
+        int matched = -1;
+        for (Map.Entry<String, RetryStrategy> entry : retryStrategies.entrySet()) {
+            if (key != null && key.startsWith(entry.getKey()) && entry.getKey().length() > matched) {
+                strategy = entry.getValue();
+                matched = entry.getKey().length();
+            }
+        }
+        return strategy != null ? strategy : RetryStrategy.fixed(LOCK_TRY_INTERVAL);
     }
 
     /**
@@ -106,37 +337,106 @@ public class RedisLockUtil {
      *
      * @param key         锁名
      * @param value       锁value, 如果要保证加锁和解锁是同一个客户端的话, 这个参数用来指定特定客户端
-     * @param expireTime  锁的超时时间
+     * @param expireTime  锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
      * @param timeout     获取锁的超时时间
      * @param tryInterval 多少ms尝试一次
      * @return
      */
     public boolean getLock(String key, String value, long timeout, long tryInterval, long expireTime) {
+        return getLock(key, value, timeout, RetryStrategy.fixed(tryInterval), expireTime);
+    }
+
+    /**
+     * 获取全局锁，按重试策略轮询
+     *
+     * @param key           锁名
+     * @param value         锁value, 如果要保证加锁和解锁是同一个客户端的话, 这个参数用来指定特定客户端
+     * @param timeout       获取锁的超时时间
+     * @param retryStrategy 重试间隔策略
+     * @param expireTime    锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
+     * @return true 获取成功，false获取失败
+     */
+    public boolean getLock(String key, String value, long timeout, RetryStrategy retryStrategy, long expireTime) {
         try {
             // 锁如果为空, 获取锁失败
             if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value)) {
                 return false;
             }
             long startTime = System.currentTimeMillis();  // 开始时间戳
+            int attempt = 0;
+            long delay = 0L;
             do {
-                Boolean result = redisTemplate.setStrIfAbsent(key, value, expireTime);
-                if (result) {  // 返回成功，表示加锁成功
+                if (tryAcquire(key, value, expireTime) == null) {  // 返回成功，表示加锁成功
                     return true;
                 }
                 if (System.currentTimeMillis() - startTime > timeout) { // 尝试超过了设定超时时间后直接跳出循环，获取锁失败
                     log.info("{}-----------{}-获取锁超时: {}",LocalDateTime.now(), Thread.currentThread().getName(), System.currentTimeMillis() - startTime);
                     return false;
                 }
-//                log.info("锁被占用中，{}后尝试重新获取", tryInterval);
-                Thread.sleep(tryInterval);  // 循环时设置时间差
+                delay = retryStrategy.nextDelay(++attempt, delay);
+//                log.info("锁被占用中，{}后尝试重新获取", delay);
+                Thread.sleep(delay);  // 循环时设置时间差
             }
             while (true);   // 只要锁存在，循环
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
+            log.error(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 阻塞获取全局锁，不轮询: 获取失败后挂起等待释放通知(pub/sub)，收到通知或锁过期后再重试
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @return true 获取成功，false获取失败
+     */
+    public boolean blockLock(String key, long timeout) {
+        return blockLock(key, ownerToken(), timeout, DEFAULT_EXPIRE_TIME);
+    }
+
+    /**
+     * 阻塞获取全局锁，不轮询: 获取失败后挂起等待释放通知(pub/sub)，收到通知或锁过期后再重试
+     *
+     * @param key        锁名
+     * @param value      锁value, 如果要保证加锁和解锁是同一个客户端的话, 这个参数用来指定特定客户端
+     * @param timeout    获取锁的超时时间 单位ms
+     * @param expireTime 锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
+     * @return true 获取成功，false获取失败
+     */
+    public boolean blockLock(String key, String value, long timeout, long expireTime) {
+        try {
+            return tryLockInterruptibly(key, value, timeout, expireTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
             log.error(e.getMessage());
             return false;
         }
     }
 
+    /**
+     * 阻塞获取全局锁，同blockLock，但等待时响应中断
+     *
+     * @param key        锁名
+     * @param value      锁value, 如果要保证加锁和解锁是同一个客户端的话, 这个参数用来指定特定客户端
+     * @param timeout    获取锁的超时时间 单位ms
+     * @param expireTime 锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
+     * @return true 获取成功，false获取失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryLockInterruptibly(String key, String value, long timeout, long expireTime) throws InterruptedException {
+        if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value)) {
+            return false;
+        }
+        long startTime = System.currentTimeMillis();  // 开始时间戳
+        boolean locked = lockSubscriber.tryAcquire(key, timeout, () -> tryAcquire(key, value, expireTime));
+        if (!locked) {
+            log.info("{}-----------{}-获取锁超时: {}",LocalDateTime.now(), Thread.currentThread().getName(), System.currentTimeMillis() - startTime);
+        }
+        return locked;
+    }
+
     /**
      * 获取全局锁(无超时后循环重试机制，拿不到直接返回false)
      *
@@ -150,18 +450,253 @@ public class RedisLockUtil {
             return false;
         }
         // 参数: key, value, key不存在set操作存在就不做任何操作, 可设置超时时间, 具体超时时间
-        return redisTemplate.setStrIfAbsent(key, value, expireTime);
+        return tryAcquire(key, value, expireTime) == null;
+    }
+
+    /**
+     * 尝试一次加锁，value按原字符串保存，释放时由脚本比较；
+     * 当前线程已用同一value持有且未过期时只在本地累加重入次数，不访问redis
+     *
+     * @param expireTime 锁的过期时间, AUTO_RENEW表示加锁成功后交给看门狗续期
+     * @return null 加锁成功，否则为锁的剩余过期时间
+     */
+    private Long tryAcquire(String key, String value, long expireTime) {
+        ThreadState state = threadState.get();
+        LockHold hold = state.holds.get(key);
+        if (hold != null) {
+            if (hold.value.equals(value) && isHeld(key, hold)) {
+                hold.count++;
+                return null;
+            }
+            if (!isHeld(key, hold)) {  // 已过期的持有记录直接丢弃
+                state.holds.remove(key);
+            }
+        }
+        expireTime = resolveExpireTime(key, expireTime);   // 重入不需要过期时间, 只在真正加锁时换算
+        List<?> result = setIfAbsent(key, value, expireTime);
+        if (!isLocked(result)) {
+            return resultValue(result);
+        }
+        state.holds.put(key, new LockHold(value, expireTime == AUTO_RENEW ? Long.MAX_VALUE : System.currentTimeMillis() + expireTime,
+                resultValue(result)));
+        return null;
+    }
+
+    /**
+     * 执行加锁脚本，不记录本地持有
+     *
+     * @return 加锁脚本结果
+     */
+    private List<?> setIfAbsent(String key, String value, long expireTime) {
+        boolean autoRenew = expireTime == AUTO_RENEW;
+        slotStats.record(key);
+        List<?> result = redisTemplate.execute(LOCK_SCRIPT, lockKeys(key, redisTemplate.isCluster()), value,
+                autoRenew ? RedisLockWatchdog.LEASE_TIME : expireTime, FENCING_TTL);
+        if (isLocked(result) && autoRenew) {
+            watchdog.watch(key, value);
+        }
+        return result;
+    }
+
+    /**
+     * 阻塞加锁，不记录本地持有(不可重入)，供本包内持有者不是单个线程的锁使用
+     */
+    boolean lockWithoutHold(String key, String value, long timeout, long expireTime) throws InterruptedException {
+        long lease = resolveExpireTime(key, expireTime);
+        return lockSubscriber.tryAcquire(key, timeout, () -> {
+            List<?> result = setIfAbsent(key, value, lease);
+            return isLocked(result) ? null : resultValue(result);
+        });
+    }
+
+    /**
+     * TUNED换算为按统计建议的过期时间，其他值原样返回
+     */
+    long resolveExpireTime(String key, long expireTime) {
+        return expireTime == TUNED ? leaseTuner.suggestLease(key, DEFAULT_EXPIRE_TIME) : expireTime;
+    }
+
+    private boolean isHeld(String key, LockHold hold) {
+        return hold.expireAt == Long.MAX_VALUE ? watchdog.isWatched(key, hold.value) : System.currentTimeMillis() < hold.expireAt;
     }
 
     /**
-     * 释放锁
+     * 释放当前线程持有的锁
      *
      * @param key 锁名
+     * @return true 释放成功，false锁不存在或不是当前线程持有
+     */
+    public boolean releaseLock(String key) {
+        return releaseLock(key, ownerToken());
+    }
+
+    /**
+     * 释放锁，只有value与加锁时一致才会删除，避免误删其他客户端的锁
+     *
+     * @param key   锁名
+     * @param value 加锁时的value
+     * @return true 释放成功，false锁不存在或不是该value持有
+     */
+    public boolean releaseLock(String key, String value) {
+        if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value)) {
+            return false;
+        }
+        ThreadState state = threadState.get();
+        LockHold hold = state.holds.get(key);
+        if (hold != null && hold.value.equals(value)) {
+            if (--hold.count > 0) {   // 重入未完全退出, 不访问redis
+                return true;
+            }
+            state.holds.remove(key);
+            leaseTuner.record(key, System.currentTimeMillis() - hold.acquiredAt);
+        }
+        return unlockWithoutHold(key, value);
+    }
+
+    /**
+     * 执行解锁脚本，不处理本地持有记录
+     */
+    boolean unlockWithoutHold(String key, String value) {
+        watchdog.unwatch(key, value);
+        Long result = redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(key), value, RedisLockSubscriber.channel(key));
+        boolean del = result != null && result == 1L;
+        log.info("{}-----------{}-是否释放成功：{}",LocalDateTime.now(), Thread.currentThread().getName(), del);
+        return del;
+    }
+
+    /**
+     * 一次获取多把锁，要么全部获取要么都不获取，一次脚本调用完成，不会因加锁顺序不同而死锁
+     *
+     * @param keys    锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @return true 获取成功，false获取失败
+     */
+    public boolean tryLockAll(Collection<String> keys, long timeout) {
+        return tryLockAll(keys, ownerToken(), timeout, DEFAULT_EXPIRE_TIME);
+    }
+
+    /**
+     * 一次获取多把锁，要么全部获取要么都不获取，一次脚本调用完成，不会因加锁顺序不同而死锁；
+     * 被占用时等待其中任意一把锁的释放通知后重试。不可重入，需用releaseAll释放；
+     * 集群中多把锁必须在同一slot(用RedisKeys.tagged构造)，否则抛出IllegalArgumentException
+     *
+     * @param keys       锁名
+     * @param value      锁value, 如果要保证加锁和解锁是同一个客户端的话, 这个参数用来指定特定客户端
+     * @param timeout    获取锁的超时时间 单位ms
+     * @param expireTime 锁的超时时间, 传AUTO_RENEW由看门狗自动续期, 传TUNED按统计的持锁时长取值
+     * @return true 获取成功，false获取失败
+     */
+    public boolean tryLockAll(Collection<String> keys, String value, long timeout, long expireTime) {
+        if (keys == null || keys.isEmpty() || StringUtils.isEmpty(value)) {
+            return false;
+        }
+        List<String> lockKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        if (redisTemplate.isCluster() && !RedisKeys.sameSlot(lockKeys)) {   // 集群中脚本只能操作同一slot的key
+            throw new IllegalArgumentException("多把锁不在同一slot, 请用RedisKeys.tagged构造锁名: " + lockKeys);
+        }
+        boolean autoRenew = expireTime == AUTO_RENEW;
+        long lease = autoRenew ? RedisLockWatchdog.LEASE_TIME : resolveExpireTime(lockKeys.get(0), expireTime);
+        long startTime = System.currentTimeMillis();  // 开始时间戳
+        try {
+            boolean locked = lockSubscriber.tryAcquire(lockKeys, timeout, () -> {
+                slotStats.record(lockKeys.get(0));
+                return redisTemplate.execute(LOCK_ALL_SCRIPT, lockKeys, value, lease);
+            });
+            if (!locked) {
+                log.info("{}-----------{}-获取锁超时: {}",LocalDateTime.now(), Thread.currentThread().getName(), System.currentTimeMillis() - startTime);
+            } else if (autoRenew) {
+                for (String key : lockKeys) {
+                    watchdog.watch(key, value);
+                }
+            }
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
+            log.error(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 释放当前线程通过tryLockAll获取的多把锁
+     *
+     * @param keys 锁名
+     * @return 实际释放的个数
+     */
+    public int releaseAll(Collection<String> keys) {
+        return releaseAll(keys, ownerToken());
+    }
+
+    /**
+     * 释放通过tryLockAll获取的多把锁，一次脚本调用完成，只释放value一致的key
+     *
+     * @param keys  锁名
+     * @param value 加锁时的value
+     * @return 实际释放的个数
      */
-    public void releaseLock(String key) {
-            if (!StringUtils.isEmpty(key)) {
-                boolean del = redisTemplate.remove(key);
-                log.info("{}-----------{}-是否释放成功：{}",LocalDateTime.now(), Thread.currentThread().getName(), del);
+    public int releaseAll(Collection<String> keys, String value) {
+        if (keys == null || keys.isEmpty() || StringUtils.isEmpty(value)) {
+            return 0;
+        }
+        List<String> lockKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        for (String key : lockKeys) {
+            watchdog.unwatch(key, value);
+        }
+        Long released = redisTemplate.execute(UNLOCK_ALL_SCRIPT, lockKeys, value, RedisLockSubscriber.CHANNEL_PREFIX);
+        log.info("{}-----------{}-释放锁个数：{}",LocalDateTime.now(), Thread.currentThread().getName(), released);
+        return released == null ? 0 : released.intValue();
+    }
+
+    /**
+     * 当前线程对一把锁的持有记录，每次真正加锁时新建
+     */
+    private static class LockHold {
+        /** 加锁时的value */
+        private final String value;
+        /** 本地估算的过期时间点, 自动续期的锁为Long.MAX_VALUE */
+        private final long expireAt;
+        /** 加锁时拿到的fencing token */
+        private final long fencingToken;
+        /** 加锁时间, 释放时统计持锁时长 */
+        private final long acquiredAt = System.currentTimeMillis();
+        /** 重入次数 */
+        private int count = 1;
+
+        LockHold(String value, long expireAt, long fencingToken) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.fencingToken = fencingToken;
+        }
+    }
+
+    /**
+     * acquire发放的凭证，记下发放时的持有记录；每次acquire新建，不复用，
+     * 否则同一对象上重复的close无法和之后发放的凭证区分
+     */
+    private class ThreadHandle extends LockHandle {
+        private final ThreadState state;
+        private final LockHold hold;
+
+        ThreadHandle(String key, ThreadState state, LockHold hold) {
+            super(key, hold.value, hold.expireAt, hold.fencingToken, handleReleaser);
+            this.state = state;
+            this.hold = hold;
+        }
+
+        @Override
+        public void close() {
+            if (state != threadState.get()) {   // 持有记录只属于加锁线程, 其他线程释放会留下失效的记录
+                throw new IllegalMonitorStateException("锁凭证只能在加锁线程内close: " + getKey());
             }
+            super.close();
+        }
+    }
+
+    /**
+     * 线程内状态: 持有记录和缓存的持有者标识
+     */
+    private class ThreadState {
+        private final Map<String, LockHold> holds = new HashMap<>();
+        private final String ownerToken = instanceId + ":" + Thread.currentThread().getId();
     }
 }
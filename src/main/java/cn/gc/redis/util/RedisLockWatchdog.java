@@ -0,0 +1,135 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 锁看门狗，对本JVM持有的自动续期锁定时延长过期时间；
+ * 全部锁共用一个调度线程，每次把所有续期命令放进一个pipeline，持有再多的锁也只有一次往返
+ **/
+@Component
+public class RedisLockWatchdog {
+    private static Logger log = LoggerFactory.getLogger(RedisLockWatchdog.class);
+
+    public static final long LEASE_TIME = 3000L;   // 自动续期锁的过期时间, 持有者宕机后最多这么久锁会释放
+
+    private static final long RENEW_INTERVAL = LEASE_TIME / 3;   // 续期间隔, 取过期时间的1/3, 留出两次失败的余量
+
+    // 续期脚本: 只有value一致才延长过期时间，返回0表示锁已丢失
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0", Long.class);
+
+    @Autowired
+    private RedisTemplateUtil redisTemplate;
+
+    private final ConcurrentMap<String, String> leases = new ConcurrentHashMap<>();   // 锁名 -> 持有者value
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::renewAll, RENEW_INTERVAL, RENEW_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 开始为锁续期
+     *
+     * @param key   锁名
+     * @param value 持有者value
+     */
+    public void watch(String key, String value) {
+        leases.put(key, value);
+    }
+
+    /**
+     * 停止为锁续期，释放锁之前调用
+     *
+     * @param key   锁名
+     * @param value 持有者value
+     */
+    public void unwatch(String key, String value) {
+        leases.remove(key, value);
+    }
+
+    /**
+     * 锁是否仍在续期中，续期失败(锁已丢失)后返回false
+     *
+     * @param key   锁名
+     * @param value 持有者value
+     * @return true 续期中
+     */
+    public boolean isWatched(String key, String value) {
+        return value.equals(leases.get(key));
+    }
+
+    private void renewAll() {
+        if (leases.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, String>> batch = new ArrayList<>(leases.entrySet());
+        try {
+            List<Object> results;
+            try {
+                results = renew(batch);
+            } catch (RuntimeException e) {
+                if (!RedisScripts.isNoScript(e)) {
+                    throw e;
+                }
+                // pipeline里无法回退EVAL，服务端脚本缓存被清空时重新加载后再续一次
+                redisTemplate.execute(connection -> connection.scriptLoad(RENEW_SCRIPT.getScriptAsString().getBytes(StringUtils.UTF8)));
+                results = renew(batch);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (Long.valueOf(0L).equals(results.get(i))) {
+                    Map.Entry<String, String> lease = batch.get(i);
+                    leases.remove(lease.getKey(), lease.getValue());
+                    log.warn("{}-----------{}-锁已丢失，停止续期: {}", LocalDateTime.now(), Thread.currentThread().getName(), lease.getKey());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("锁续期失败: {}", e.getMessage());
+        }
+    }
+
+    private List<Object> renew(List<Map.Entry<String, String>> batch) {
+        String sha = RENEW_SCRIPT.getSha1();
+        byte[] leaseTime = String.valueOf(LEASE_TIME).getBytes(StringUtils.UTF8);
+        return redisTemplate.executePipelined(connection -> {
+            for (Map.Entry<String, String> lease : batch) {
+                connection.evalSha(sha, ReturnType.INTEGER, 1,
+                        lease.getKey().getBytes(StringUtils.UTF8), lease.getValue().getBytes(StringUtils.UTF8), leaseTime);
+            }
+            return null;
+        });
+    }
+}
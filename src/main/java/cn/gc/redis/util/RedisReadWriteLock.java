@@ -0,0 +1,328 @@
+package cn.gc.redis.util;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 分布式读写锁，由RedisLockFactory创建。redis中key为hash(mode/writer)，
+ * {key}:readers为zset(读锁持有者 -> 租约到期时间，每个读者单独过期)，{key}:write-intent为等待中的写者；
+ * 读锁可被多个线程共享，写锁独占，有写者等待时新读者不能进入，避免写者饿死。
+ * 持有者为当前线程，重入只在本地计数；支持写锁降级为读锁，不支持读锁升级为写锁；不自动续期
+ **/
+public class RedisReadWriteLock implements ReadWriteLock {
+
+    private static final long WRITE_INTENT_TIMEOUT = 1000L;   // 写意向有效期, 写者在此时间内没有刷新视为已放弃
+
+    private static final long WRITE_INTENT_REFRESH_INTERVAL = WRITE_INTENT_TIMEOUT / 3;   // 写者等待时最长多久刷新一次写意向
+
+    // 读锁: 没有其他写者持有、也没有其他写者等待时加入读者集合；读者租约按redis服务端时间计算
+    private static final RedisScript<Long> READ_LOCK_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now) " +
+            "local writer = redis.call('hget', KEYS[1], 'writer') " +
+            "if writer and writer ~= ARGV[1] then return redis.call('pttl', KEYS[1]) end " +
+            "if not writer then " +
+                "local intent = redis.call('get', KEYS[3]) " +
+                "if intent and intent ~= ARGV[1] then return redis.call('pttl', KEYS[3]) end " +
+                "redis.call('hset', KEYS[1], 'mode', 'read') " +
+            "end " +
+            "redis.call('zadd', KEYS[2], now + tonumber(ARGV[2]), ARGV[1]) " +
+            "if redis.call('pttl', KEYS[2]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[2], ARGV[2]) end " +
+            "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+            "return nil", Long.class);
+
+    // 写锁: 没有写者且没有读者时获取，否则登记写意向阻止新读者，并返回最长需要等待的时间
+    private static final RedisScript<Long> WRITE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now) " +
+            "local writer = redis.call('hget', KEYS[1], 'writer') " +
+            "if writer == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return nil end " +
+            "if not writer and redis.call('zcard', KEYS[2]) == 0 then " +
+                "redis.call('hmset', KEYS[1], 'mode', 'write', 'writer', ARGV[1]) " +
+                "redis.call('pexpire', KEYS[1], ARGV[2]) " +
+                "if redis.call('get', KEYS[3]) == ARGV[1] then redis.call('del', KEYS[3]) end " +
+                "return nil " +
+            "end " +
+            "local intent = redis.call('get', KEYS[3]) " +
+            "if not intent or intent == ARGV[1] then redis.call('set', KEYS[3], ARGV[1], 'PX', ARGV[3]) end " +
+            "if writer then return redis.call('pttl', KEYS[1]) end " +
+            "local last = redis.call('zrange', KEYS[2], -1, -1, 'withscores') " +
+            "return tonumber(last[2]) - now", Long.class);
+
+    // 放弃写锁: 写意向仍是自己的则删除，并通知被写意向挡住的读者
+    private static final RedisScript<Long> CANCEL_INTENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[3]) ~= ARGV[1] then return 0 end " +
+            "redis.call('del', KEYS[3]) " +
+            "redis.call('publish', ARGV[2], ARGV[3]) " +
+            "return 1", Long.class);
+
+    // 释放读锁: 最后一个读者离开时通知全部等待者
+    private static final RedisScript<Long> READ_UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now) " +
+            "if redis.call('zrem', KEYS[2], ARGV[1]) == 0 then return 0 end " +
+            "if redis.call('zcard', KEYS[2]) == 0 then " +
+                "if not redis.call('hget', KEYS[1], 'writer') then redis.call('del', KEYS[1]) end " +
+                "redis.call('publish', ARGV[2], ARGV[3]) " +
+            "end " +
+            "return 1", Long.class);
+
+    // 释放写锁: 仍有读者(降级)时切换为读模式，通知全部等待者
+    private static final RedisScript<Long> WRITE_UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now) " +
+            "if redis.call('hget', KEYS[1], 'writer') ~= ARGV[1] then return 0 end " +
+            "if redis.call('zcard', KEYS[2]) > 0 then " +
+                "redis.call('hdel', KEYS[1], 'writer') " +
+                "redis.call('hset', KEYS[1], 'mode', 'read') " +
+            "else redis.call('del', KEYS[1]) end " +
+            "redis.call('publish', ARGV[2], ARGV[3]) " +
+            "return 1", Long.class);
+
+    private static final ThreadLocal<Map<String, int[]>> HOLDS = ThreadLocal.withInitial(HashMap::new);  // 锁名 -> 当前线程的{读, 写}重入次数
+
+    private final String key;   // 锁名
+
+    private final long leaseTime;   // 锁的过期时间
+
+    private final List<String> keys;
+
+    private final RedisTemplateUtil redisTemplate;
+
+    private final RedisLockSubscriber lockSubscriber;
+
+    private final RedisLockUtil lockUtil;
+
+    private final Lock readLock = new ReadLock();
+
+    private final Lock writeLock = new WriteLock();
+
+    RedisReadWriteLock(String key, long leaseTime, RedisTemplateUtil redisTemplate, RedisLockSubscriber lockSubscriber, RedisLockUtil lockUtil) {
+        this.key = key;
+        this.leaseTime = leaseTime;
+        this.keys = Arrays.asList(key, RedisKeys.derived(key, "readers", redisTemplate.isCluster()),
+                RedisKeys.derived(key, "write-intent", redisTemplate.isCluster()));
+        this.redisTemplate = redisTemplate;
+        this.lockSubscriber = lockSubscriber;
+        this.lockUtil = lockUtil;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    private int[] holds() {
+        return HOLDS.get().computeIfAbsent(key, k -> new int[2]);
+    }
+
+    private void clearHolds(int[] holds) {
+        if (holds[0] == 0 && holds[1] == 0) {
+            HOLDS.get().remove(key);
+        }
+    }
+
+    /**
+     * 读锁、写锁的公共实现，index为本地重入计数的下标
+     */
+    private abstract class Mode implements Lock {
+
+        private final int index;
+
+        Mode(int index) {
+            this.index = index;
+        }
+
+        /**
+         * 一次加锁尝试
+         *
+         * @return null 加锁成功，否则为建议等待时长
+         */
+        abstract Long attempt(String owner);
+
+        abstract RedisScript<Long> unlockScript();
+
+        /**
+         * 是否可以只在本地计数，不可以时抛出异常说明原因
+         */
+        abstract boolean reentrant(int[] holds);
+
+        /**
+         * 获取失败(超时、中断)后的清理
+         */
+        void cancel(String owner) {
+        }
+
+        private boolean acquire(long timeout) throws InterruptedException {
+            int[] holds = holds();
+            if (reentrant(holds)) {
+                holds[index]++;
+                return true;
+            }
+            String owner = lockUtil.ownerToken();
+            boolean locked = false;
+            try {
+                locked = lockSubscriber.tryAcquire(key, timeout, () -> attempt(owner));
+            } finally {
+                if (locked) {
+                    holds[index]++;
+                } else {
+                    clearHolds(holds);
+                    cancel(owner);
+                }
+            }
+            return locked;
+        }
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (acquire(Long.MAX_VALUE)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;   // 不响应中断, 拿到锁后恢复中断状态
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            while (!acquire(Long.MAX_VALUE)) {
+                // 超时时间为Long.MAX_VALUE, 正常不会走到这里
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquire(0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return acquire(unit.toMillis(time));
+        }
+
+        /**
+         * @throws IllegalMonitorStateException 当前线程未持有锁(或锁已过期)
+         */
+        @Override
+        public void unlock() {
+            int[] holds = holds();
+            if (holds[index] == 0) {
+                clearHolds(holds);
+                throw new IllegalMonitorStateException("当前线程未持有锁: " + key);
+            }
+            if (--holds[index] > 0) {   // 重入未完全退出, 不访问redis
+                return;
+            }
+            clearHolds(holds);
+            Long result = redisTemplate.execute(unlockScript(), keys, lockUtil.ownerToken(),
+                    RedisLockSubscriber.channel(key), RedisLockSubscriber.WAKE_ALL);
+            if (result == null || result != 1L) {
+                throw new IllegalMonitorStateException("锁已过期: " + key);
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("分布式锁不支持Condition");
+        }
+    }
+
+    private class ReadLock extends Mode {
+
+        ReadLock() {
+            super(0);
+        }
+
+        @Override
+        Long attempt(String owner) {
+            return redisTemplate.execute(READ_LOCK_SCRIPT, keys, owner, leaseTime);
+        }
+
+        @Override
+        RedisScript<Long> unlockScript() {
+            return READ_UNLOCK_SCRIPT;
+        }
+
+        @Override
+        boolean reentrant(int[] holds) {
+            return holds[0] > 0;   // 只持有写锁时要在redis登记读者, 写锁释放后才能降级为读锁
+        }
+    }
+
+    private class WriteLock extends Mode {
+
+        WriteLock() {
+            super(1);
+        }
+
+        @Override
+        Long attempt(String owner) {
+            Long ttl = redisTemplate.execute(WRITE_LOCK_SCRIPT, keys, owner, leaseTime, WRITE_INTENT_TIMEOUT);
+            // 等待期间要定期刷新写意向
+            return ttl == null ? null : ttl < 0 ? WRITE_INTENT_REFRESH_INTERVAL : Math.min(ttl, WRITE_INTENT_REFRESH_INTERVAL);
+        }
+
+        @Override
+        RedisScript<Long> unlockScript() {
+            return WRITE_UNLOCK_SCRIPT;
+        }
+
+        /**
+         * 放弃时立即撤回写意向，不让新读者再被挡到写意向过期
+         */
+        @Override
+        void cancel(String owner) {
+            redisTemplate.execute(CANCEL_INTENT_SCRIPT, keys, owner, RedisLockSubscriber.channel(key), RedisLockSubscriber.WAKE_ALL);
+        }
+
+        @Override
+        boolean reentrant(int[] holds) {
+            if (holds[1] > 0) {
+                return true;
+            }
+            if (holds[0] > 0) {
+                throw new IllegalMonitorStateException("不支持读锁升级为写锁: " + key);
+            }
+            return false;
+        }
+    }
+}
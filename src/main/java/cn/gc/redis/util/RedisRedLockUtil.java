@@ -0,0 +1,316 @@
+package cn.gc.redis.util;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 多节点多数派锁(Redlock)，节点由redis.lock.redlock.nodes配置(host:port, 逗号分隔)，
+ * 各节点相互独立(不是主从)，密码和库默认与spring.redis相同。加锁时并行向全部节点发SET NX PX，过半成功且扣除耗时和时钟漂移后仍有剩余有效期才算成功，
+ * 否则立即在全部节点回滚；等待的是凑够多数派的那个节点，不是全部节点耗时之和。
+ * 任意少数节点宕机或主从切换都不影响锁的互斥，启动时连不上的节点不影响启动，加锁时按失败计并在后台重连。
+ * 不可重入，不发fencing token(各节点计数器互相独立, 无法保证单调)
+ **/
+@Component
+public class RedisRedLockUtil {
+    private static Logger log = LoggerFactory.getLogger(RedisRedLockUtil.class);
+
+    private static final double CLOCK_DRIFT_FACTOR = 0.01;   // 各节点时钟漂移系数, 计算剩余有效期时扣除
+
+    private static final RetryStrategy RETRY_STRATEGY = RetryStrategy.exponentialJitter(20L, 200L);   // 加锁失败后随机退避, 避免多个客户端反复平分节点
+
+    @Value("${redis.lock.redlock.nodes:}")
+    private String[] nodes;
+
+    @Value("${redis.lock.redlock.password:${spring.redis.password:}}")
+    private String password;
+
+    @Value("${redis.lock.redlock.database:${spring.redis.database:0}}")
+    private int database;
+
+    @Value("${redis.lock.redlock.node-timeout:50}")
+    private long nodeTimeout;   // 单个节点的连接和命令超时 单位ms, 远小于锁的过期时间, 宕机节点不会拖慢加锁
+
+    private final String instanceId = UUID.randomUUID().toString();   // 当前实例标识, 与序号组成每次加锁的value
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Consumer<LockHandle> handleReleaser = this::releaseLock;   // 凭证close时在全部节点释放
+
+    private ClientResources clientResources;   // 各节点共用的事件循环等资源, 未配置节点时不创建
+
+    private final List<Node> redisNodes = new ArrayList<>();
+
+    @PostConstruct
+    public void start() {
+        List<String> addresses = new ArrayList<>();
+        for (String node : nodes) {
+            if (!StringUtils.isEmpty(node.trim())) {
+                addresses.add(node.trim());
+            }
+        }
+        if (addresses.isEmpty()) {   // 默认单节点部署不使用Redlock, 不多起一组事件循环
+            return;
+        }
+        Duration timeout = Duration.ofMillis(nodeTimeout);
+        clientResources = DefaultClientResources.create();
+        // 异步命令默认不超时, 要在客户端上打开, 每个节点各自计时
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .shutdownTimeout(timeout)
+                .clientResources(clientResources)
+                .clientOptions(ClientOptions.builder()
+                        .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+                        .timeoutOptions(TimeoutOptions.enabled(timeout))
+                        .build())
+                .build();
+        for (String address : addresses) {
+            String[] hostPort = address.split(":");
+            RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(hostPort[0], Integer.parseInt(hostPort[1]));
+            configuration.setDatabase(database);
+            if (!StringUtils.isEmpty(password)) {
+                configuration.setPassword(RedisPassword.of(password));
+            }
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+            factory.afterPropertiesSet();
+            Node node = new Node(address, factory);
+            node.connect();   // 连不上只记日志, 少数节点不可用时仍能加锁
+            redisNodes.add(node);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Node node : redisNodes) {
+            node.close();
+        }
+        if (clientResources != null) {
+            clientResources.shutdown(0L, nodeTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 多数派节点数，未连上的节点也计入总数
+     */
+    private int quorum() {
+        return redisNodes.size() / 2 + 1;
+    }
+
+    /**
+     * 在多数派节点上获取锁，失败后随机退避重试直到超时
+     *
+     * @param key     锁名
+     * @param timeout 获取锁的超时时间 单位ms
+     * @param lease   锁的过期时间 单位ms
+     * @return 获取成功时为锁凭证(expireAt为扣除耗时和漂移后的有效期)，失败为null
+     */
+    public LockHandle tryLock(String key, long timeout, long lease) {
+        if (redisNodes.isEmpty()) {
+            throw new UnsupportedOperationException("未配置redis.lock.redlock.nodes");
+        }
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        String owner = instanceId + ":redlock:" + sequence.incrementAndGet();
+        long startTime = System.currentTimeMillis();  // 开始时间戳
+        int attempt = 0;
+        long delay = 0L;
+        try {
+            do {
+                LockHandle handle = attempt(key, owner, lease);
+                if (handle != null) {
+                    return handle;
+                }
+                if (System.currentTimeMillis() - startTime > timeout) {
+                    log.info("{}-----------{}-获取锁超时: {}", LocalDateTime.now(), Thread.currentThread().getName(), System.currentTimeMillis() - startTime);
+                    return null;
+                }
+                delay = RETRY_STRATEGY.nextDelay(++attempt, delay);
+                Thread.sleep(delay);
+            }
+            while (true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();   // 保留中断状态, 交给调用方处理
+            log.error(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 一次并行加锁，凑够多数派或确定凑不够时立即返回
+     */
+    private LockHandle attempt(String key, String owner, long lease) throws InterruptedException {
+        int quorum = quorum();
+        int total = redisNodes.size();
+        CompletableFuture<Boolean> decided = new CompletableFuture<>();
+        AtomicInteger locked = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        byte[] rawKey = RedisScripts.bytes(key);
+        byte[] rawOwner = RedisScripts.bytes(owner);
+        long startTime = System.currentTimeMillis();
+        for (Node node : redisNodes) {
+            RedisClusterAsyncCommands<byte[], byte[]> commands = node.commands();
+            if (commands == null) {   // 未连上的节点直接算失败票
+                if (failed.incrementAndGet() > total - quorum) {
+                    decided.complete(false);
+                }
+                continue;
+            }
+            commands.set(rawKey, rawOwner, SetArgs.Builder.nx().px(lease)).whenComplete((ok, e) -> {
+                if (e == null && ok != null) {
+                    if (locked.incrementAndGet() >= quorum) {
+                        decided.complete(true);
+                    }
+                } else if (failed.incrementAndGet() > total - quorum) {   // 剩下的全部成功也不够多数派
+                    decided.complete(false);
+                }
+            });
+        }
+        boolean success;
+        try {
+            // 每个节点的命令在nodeTimeout后自行失败, 这里的超时只是兜底
+            success = decided.get(nodeTimeout * 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            success = false;
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        long validity = lease - elapsed - (long) (lease * CLOCK_DRIFT_FACTOR) - 2;
+        if (success && validity > 0) {
+            return new LockHandle(key, owner, startTime + elapsed + validity, -1L, handleReleaser);
+        }
+        // 没凑够多数派或有效期已耗尽，回滚全部节点(包括还没返回的)
+        unlockAll(key, owner);
+        return null;
+    }
+
+    /**
+     * 在全部节点释放锁
+     *
+     * @param handle 加锁凭证
+     * @return true 多数派节点释放成功
+     */
+    public boolean releaseLock(LockHandle handle) {
+        List<CompletableFuture<Long>> futures = unlockAll(handle.getKey(), handle.getOwner());
+        try {
+            // 全部节点并行释放, 只等一次, 不可达的节点各自在nodeTimeout后失败
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(nodeTimeout * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("节点释放锁失败: {}", e.getMessage());
+        }
+        int released = 0;
+        for (CompletableFuture<Long> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                Long result = future.join();
+                if (result != null && result == 1L) {
+                    released++;
+                }
+            }
+        }
+        boolean del = released >= quorum();
+        log.info("{}-----------{}-是否释放成功：{}", LocalDateTime.now(), Thread.currentThread().getName(), del);
+        return del;
+    }
+
+    /**
+     * 并行向全部已连上的节点发解锁脚本，只删除value一致的key；未连上的节点上不会有这把锁
+     */
+    private List<CompletableFuture<Long>> unlockAll(String key, String owner) {
+        byte[][] keys = {RedisScripts.bytes(key)};
+        byte[] rawOwner = RedisScripts.bytes(owner);
+        byte[] channel = RedisScripts.bytes(RedisLockSubscriber.channel(key));
+        List<CompletableFuture<Long>> futures = new ArrayList<>(redisNodes.size());
+        for (Node node : redisNodes) {
+            RedisClusterAsyncCommands<byte[], byte[]> commands = node.commands();
+            if (commands != null) {
+                futures.add(RedisScripts.evalAsync(commands, RedisLockUtil.UNLOCK_SCRIPT, ScriptOutputType.INTEGER, keys, rawOwner, channel));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 一个节点及其连接；连接建立后由lettuce自动重连，只有从未连上时才由这里在后台重试
+     */
+    private static class Node {
+        private final String address;
+        private final LettuceConnectionFactory factory;
+        private final AtomicBoolean connecting = new AtomicBoolean();   // 是否有一次连接在进行, 同时只发起一次
+        private volatile RedisConnection connection;
+        private volatile RedisClusterAsyncCommands<byte[], byte[]> commands;
+        private volatile boolean closed;
+
+        Node(String address, LettuceConnectionFactory factory) {
+            this.address = address;
+            this.factory = factory;
+        }
+
+        /**
+         * 已连上时返回异步命令，否则在后台发起一次连接并返回null，不阻塞加锁
+         */
+        RedisClusterAsyncCommands<byte[], byte[]> commands() {
+            RedisClusterAsyncCommands<byte[], byte[]> current = commands;
+            if (current == null && !closed && connecting.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(this::connect);
+            }
+            return current;
+        }
+
+        @SuppressWarnings("unchecked")   // lettuce连接的原生连接就是按byte[]编解码的异步命令
+        void connect() {
+            try {
+                RedisConnection opened = factory.getConnection();
+                connection = opened;
+                commands = (RedisClusterAsyncCommands<byte[], byte[]>) opened.getNativeConnection();
+                if (closed) {   // 连接期间已停止
+                    opened.close();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Redlock节点{}连接失败, 加锁时按失败计: {}", address, e.getMessage());
+            } finally {
+                connecting.set(false);
+            }
+        }
+
+        void close() {
+            closed = true;
+            if (connection != null) {
+                connection.close();
+            }
+            factory.destroy();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cn.gc.redis.util;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 锁脚本的公共片段，以及RedisTemplate之外(pipeline、lettuce异步命令)执行脚本的处理
+ **/
+final class RedisScripts {
+
+    /**
+     * 脚本开头取redis服务端当前时间(ms)到局部变量now，租约到期时间都按它计算，不受各客户端时钟偏差影响；
+     * redis 5之前脚本调用TIME后不能再写，需先切换为按效果复制
+     */
+    static final String NOW = "redis.replicate_commands() " +
+            "local time = redis.call('time') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) ";
+
+    private RedisScripts() {
+    }
+
+    /**
+     * 是否为服务端没有缓存脚本(NOSCRIPT)导致的异常
+     */
+    static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 异步执行脚本: 先EVALSHA，服务端无缓存时回退EVAL，全程不阻塞调用线程
+     *
+     * @param commands lettuce异步命令
+     * @param script   脚本
+     * @param type     返回值类型
+     * @param keys     keys
+     * @param args     参数
+     * @param <T>
+     * @return 脚本结果
+     */
+    static <T> CompletableFuture<T> evalAsync(RedisClusterAsyncCommands<byte[], byte[]> commands, RedisScript<?> script,
+                                              ScriptOutputType type, byte[][] keys, byte[]... args) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        commands.<T>evalsha(script.getSha1(), type, keys, args).whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else if (isNoScript(e)) {
+                commands.<T>eval(script.getScriptAsString(), type, keys, args).whenComplete((retry, retryError) -> {
+                    if (retryError == null) {
+                        result.complete(retry);
+                    } else {
+                        result.completeExceptionally(retryError);
+                    }
+                });
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 字符串参数按UTF-8编码
+     */
+    static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StringUtils.UTF8);
+    }
+}
@@ -0,0 +1,151 @@
+package cn.gc.redis.util;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 分布式信号量，由RedisLockFactory创建，集群内最多permits个许可同时被持有。
+ * redis中key为zset(持有者 -> 租约到期时间)，{key}:permits为hash(持有者 -> 持有许可数)，
+ * 持有者宕机后许可随租约过期自动收回；持有者为当前线程，获取和释放都只有一次往返
+ **/
+public class RedisSemaphore {
+
+    // 获取许可: 先收回过期持有者的许可(按redis服务端时间判断，分批删除避免unpack超出lua栈)，
+    // 剩余许可足够时登记，否则返回最早到期的持有者还剩多久
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            RedisScripts.NOW +
+            "local expired = redis.call('zrangebyscore', KEYS[1], '-inf', now) " +
+            "if #expired > 0 then " +
+                "redis.call('zremrangebyscore', KEYS[1], '-inf', now) " +
+                "for i = 1, #expired, 1000 do " +
+                    "redis.call('hdel', KEYS[2], unpack(expired, i, math.min(i + 999, #expired))) " +
+                "end " +
+            "end " +
+            "local used = 0 " +
+            "for _, c in ipairs(redis.call('hvals', KEYS[2])) do used = used + tonumber(c) end " +
+            "if used + tonumber(ARGV[1]) > tonumber(ARGV[4]) then " +
+                "local first = redis.call('zrange', KEYS[1], 0, 0, 'withscores') " +
+                "if first[2] then return tonumber(first[2]) - now end " +
+                "return -1 " +
+            "end " +
+            "redis.call('hincrby', KEYS[2], ARGV[2], ARGV[1]) " +
+            "redis.call('zadd', KEYS[1], now + tonumber(ARGV[3]), ARGV[2]) " +
+            "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[3]) then redis.call('pexpire', KEYS[1], ARGV[3]) end " +
+            "if redis.call('pttl', KEYS[2]) < tonumber(ARGV[3]) then redis.call('pexpire', KEYS[2], ARGV[3]) end " +
+            "return nil", Long.class);
+
+    // 释放许可: 持有数不足(未持有或已过期)返回0，否则扣减并通知全部等待者
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local held = tonumber(redis.call('hget', KEYS[2], ARGV[2]) or '0') " +
+            "if held < tonumber(ARGV[1]) then return 0 end " +
+            "if held == tonumber(ARGV[1]) then " +
+                "redis.call('hdel', KEYS[2], ARGV[2]) " +
+                "redis.call('zrem', KEYS[1], ARGV[2]) " +
+            "else redis.call('hincrby', KEYS[2], ARGV[2], -tonumber(ARGV[1])) end " +
+            "redis.call('publish', ARGV[3], ARGV[4]) " +
+            "return 1", Long.class);
+
+    private final String key;   // 信号量名
+
+    private final int permits;   // 许可总数
+
+    private final long leaseTime;   // 许可的租约时间, 每次获取时刷新该线程全部许可的租约
+
+    private final List<String> keys;
+
+    private final RedisTemplateUtil redisTemplate;
+
+    private final RedisLockSubscriber lockSubscriber;
+
+    private final RedisLockUtil lockUtil;
+
+    RedisSemaphore(String key, int permits, long leaseTime, RedisTemplateUtil redisTemplate, RedisLockSubscriber lockSubscriber, RedisLockUtil lockUtil) {
+        this.key = key;
+        this.permits = permits;
+        this.leaseTime = leaseTime;
+        this.keys = Arrays.asList(key, RedisKeys.derived(key, "permits", redisTemplate.isCluster()));
+        this.redisTemplate = redisTemplate;
+        this.lockSubscriber = lockSubscriber;
+        this.lockUtil = lockUtil;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    /**
+     * 获取许可，拿不到一直等待
+     *
+     * @param n 许可数
+     * @throws InterruptedException 等待时被中断
+     */
+    public void acquire(int n) throws InterruptedException {
+        while (!tryAcquire(n, Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+            // 超时时间为Long.MAX_VALUE, 正常不会走到这里
+        }
+    }
+
+    /**
+     * 尝试获取许可，只尝试一次
+     *
+     * @param n 许可数
+     * @return true 获取成功，false许可不足
+     */
+    public boolean tryAcquire(int n) {
+        checkPermits(n);
+        return attempt(n, lockUtil.ownerToken()) == null;
+    }
+
+    /**
+     * 尝试获取许可，许可不足时等待其他持有者释放或过期
+     *
+     * @param n       许可数
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return true 获取成功，false超时
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryAcquire(int n, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(n);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        String owner = lockUtil.ownerToken();
+        return lockSubscriber.tryAcquire(key, unit.toMillis(timeout), () -> attempt(n, owner));
+    }
+
+    /**
+     * 释放当前线程持有的许可
+     *
+     * @param n 许可数
+     * @throws IllegalMonitorStateException 当前线程持有的许可不足(或已过期)
+     */
+    public void release(int n) {
+        checkPermits(n);
+        Long result = redisTemplate.execute(RELEASE_SCRIPT, keys, n, lockUtil.ownerToken(),
+                RedisLockSubscriber.channel(key), RedisLockSubscriber.WAKE_ALL);
+        if (result == null || result != 1L) {
+            throw new IllegalMonitorStateException("当前线程持有的许可不足: " + key);
+        }
+    }
+
+    private Long attempt(int n, String owner) {
+        return redisTemplate.execute(ACQUIRE_SCRIPT, keys, n, owner, leaseTime, permits);
+    }
+
+    private void checkPermits(int n) {
+        if (n <= 0 || n > permits) {
+            throw new IllegalArgumentException("许可数应在1到" + permits + "之间: " + n);
+        }
+    }
+}
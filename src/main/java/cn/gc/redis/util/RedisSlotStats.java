@@ -0,0 +1,93 @@
+package cn.gc.redis.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 本JVM加锁尝试按slot计数，用于发现集群中的热点slot和负载不均的节点；
+ * 计数只在本地累加(无锁数组)，按节点汇总时才访问一次集群拓扑
+ **/
+@Component
+public class RedisSlotStats {
+
+    @Autowired
+    private RedisTemplateUtil redisTemplate;
+
+    private final AtomicLongArray counts = new AtomicLongArray(RedisKeys.SLOT_COUNT);   // slot -> 加锁尝试次数
+
+    /**
+     * 记录一次加锁尝试
+     *
+     * @param key 锁名
+     */
+    public void record(String key) {
+        counts.incrementAndGet(RedisKeys.slot(key));
+    }
+
+    /**
+     * 尝试次数最多的slot
+     *
+     * @param top 返回个数
+     * @return slot -> 次数，按次数从大到小
+     */
+    public List<Map.Entry<Integer, Long>> hotSlots(int top) {
+        List<Map.Entry<Integer, Long>> slots = new ArrayList<>();
+        for (int slot = 0; slot < RedisKeys.SLOT_COUNT; slot++) {
+            long count = counts.get(slot);
+            if (count > 0) {
+                slots.add(new AbstractMap.SimpleImmutableEntry<>(slot, count));
+            }
+        }
+        slots.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return slots.size() > top ? new ArrayList<>(slots.subList(0, top)) : slots;
+    }
+
+    /**
+     * 按节点汇总的加锁尝试次数，非集群时只有一项standalone
+     *
+     * @return 节点(host:port) -> 次数
+     */
+    public Map<String, Long> perNode() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (!redisTemplate.isCluster()) {
+            long total = 0L;
+            for (int slot = 0; slot < RedisKeys.SLOT_COUNT; slot++) {
+                total += counts.get(slot);
+            }
+            result.put("standalone", total);
+            return result;
+        }
+        Iterable<RedisClusterNode> nodes = redisTemplate.execute(connection -> ((RedisClusterConnection) connection).clusterGetNodes());
+        for (RedisClusterNode node : nodes) {
+            if (!node.isMaster()) {
+                continue;
+            }
+            long total = 0L;
+            for (Integer slot : node.getSlotRange().getSlots()) {
+                total += counts.get(slot);
+            }
+            result.put(node.getHost() + ":" + node.getPort(), total);
+        }
+        return result;
+    }
+
+    /**
+     * 清零，按时间窗口统计时定期调用
+     */
+    public void reset() {
+        for (int slot = 0; slot < RedisKeys.SLOT_COUNT; slot++) {
+            counts.set(slot, 0L);
+        }
+    }
+}
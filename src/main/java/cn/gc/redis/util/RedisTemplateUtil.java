@@ -1,17 +1,38 @@
 package cn.gc.redis.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
 import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.temporal.TemporalUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @Author: gc
@@ -24,8 +45,12 @@ public class RedisTemplateUtil {
     @Autowired
     private RedisTemplate<Object, Object> redisTemplate;
 
+    private static final StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();  // 脚本参数统一按字符串序列化
+
+    private static final int DEFAULT_SCAN_COUNT = 1000;   // getKetSetPrefix每次SCAN的COUNT
+
     /**
-     * 保存字符串类型值
+     * 保存字符串类型值，高频写入可用RedisWriteCoalescer合并为pipeline
      * @param key
      *      key
      * @param value
@@ -66,7 +91,7 @@ public class RedisTemplateUtil {
     }
 
     /**
-     * 保存hash
+     * 保存hash，高频写入可用RedisWriteCoalescer合并为pipeline
      * @param key
      *      key
      * @param field
@@ -123,20 +148,21 @@ public class RedisTemplateUtil {
     }
 
     /**
-     * 批量插入hash数据
+     * 批量插入hash数据，key、field、value按UTF-8直接编码，字符串和整数值不经过toString；
+     * 整个map在一个pipeline中发送，数据量大时用RedisBulkLoader.loadHash分块导入
      * @param key
      *      key
      * @param fields
-     *      fields
+     *      fields，value不能为null
      * @param <V>
      * @return
      */
     public <V> void setHash(String key, Map<String, V> fields){
         redisTemplate.executePipelined((RedisConnection connection) -> {
-            byte[] keyByte = key.getBytes();
+            byte[] keyByte = Utf8Encoder.encode(key);
             for (Map.Entry<String,V> entry : fields.entrySet()){
-                byte[] field = entry.getKey().getBytes();
-                byte[] value = entry.getValue().toString().getBytes();
+                byte[] field = Utf8Encoder.encode(entry.getKey());
+                byte[] value = Utf8Encoder.encode(entry.getValue());
                 connection.hSet(keyByte,field,value);
             }
             return null;
@@ -144,7 +170,7 @@ public class RedisTemplateUtil {
     }
 
     /**
-     * 批量插入list数据到hash结构中
+     * 批量插入list数据到hash结构中，list以英文逗号连接后存为value，直接编码，不生成中间字符串
      * @param key
      *      key
      * @param fields
@@ -155,10 +181,10 @@ public class RedisTemplateUtil {
      */
     public <K,F,V> void setListHash(String key, Map<String, List<String>> fields){
         redisTemplate.executePipelined((RedisConnection connection) -> {
-            byte[] keyByte = key.getBytes();
+            byte[] keyByte = Utf8Encoder.encode(key);
             for (Map.Entry<String,List<String>> entry : fields.entrySet()){
-                byte[] field = entry.getKey().getBytes();
-                byte[] value = StringUtils.listToStr(entry.getValue()).getBytes();
+                byte[] field = Utf8Encoder.encode(entry.getKey());
+                byte[] value = Utf8Encoder.join(entry.getValue(), ',');
                 connection.hSet(keyByte,field,value);
             }
             return null;
@@ -186,13 +212,31 @@ public class RedisTemplateUtil {
     }
 
     /**
-     * 通过前缀匹配的key集合set
+     * 通过前缀匹配的key集合set，内部用SCAN分批获取，不阻塞redis；结果仍全部放在内存中，key很多时用scanKeys
      * @param prefix
      *      前缀
      * @return
      */
     public Set<Object> getKetSetPrefix(String prefix){
-        return redisTemplate.keys(prefix + "*");
+        try (Stream<String> keys = scanKeys(prefix, DEFAULT_SCAN_COUNT)) {
+            return keys.collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+
+    /**
+     * 按前缀流式遍历key，SCAN游标按需推进，内存中最多只有一批key，redis单次调用耗时与key总数无关；
+     * 集群时依次扫描每个主节点。遍历完自动释放连接，提前结束时需关闭Stream(try-with-resources)
+     * @param prefix
+     *      前缀
+     * @param batchSize
+     *      每次SCAN的COUNT
+     * @return
+     */
+    public Stream<String> scanKeys(String prefix, int batchSize){
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(batchSize).build();
+        KeyScanner scanner = redisTemplate.executeWithStickyConnection(connection -> new KeyScanner(connection, options));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scanner, Spliterator.NONNULL), false)
+                .onClose(scanner::close);
     }
 
     /**
@@ -231,4 +275,144 @@ public class RedisTemplateUtil {
     public Boolean setStrIfAbsent(String key, String value, long expireTime) {
         return redisTemplate.opsForValue().setIfAbsent(key,value, Duration.ofMillis(expireTime));
     }
-}
+
+    /**
+     * 执行lua脚本，参数按字符串序列化，便于脚本内比较和计算
+     * @param script
+     *      脚本
+     * @param keys
+     *      keys
+     * @param args
+     *      参数
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")   // 结果序列化器只用于反序列化字符串回复, 整数等回复按script的返回类型转换, 不会经过它; keys只读, 不必复制成List<Object>
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        Object[] strArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            strArgs[i] = String.valueOf(args[i]);
+        }
+        return redisTemplate.execute(script, STRING_SERIALIZER, (RedisSerializer<T>) STRING_SERIALIZER, (List<Object>) (List<?>) keys, strArgs);
+    }
+
+    /**
+     * 发布消息
+     * @param channel
+     *      频道
+     * @param message
+     *      消息
+     */
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
+    /**
+     * 在一个连接上执行原生命令
+     * @param action
+     *      回调
+     * @param <T>
+     * @return
+     */
+    public <T> T execute(RedisCallback<T> action) {
+        return redisTemplate.execute(action);
+    }
+
+    /**
+     * 以pipeline方式批量执行原生命令，一次往返返回全部结果
+     * @param action
+     *      回调
+     * @return
+     */
+    public List<Object> executePipelined(RedisCallback<?> action) {
+        return redisTemplate.executePipelined(action);
+    }
+
+    /**
+     * 是否连接的是redis cluster
+     * @return
+     */
+    public boolean isCluster() {
+        RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+        return factory instanceof LettuceConnectionFactory && ((LettuceConnectionFactory) factory).isClusterAware();
+    }
+
+    /**
+     * SCAN游标的迭代器，独占一个连接直到遍历结束或关闭
+     */
+    private static class KeyScanner implements Iterator<String>, Closeable {
+
+        private final RedisConnection connection;
+
+        private final ScanOptions options;
+
+        private final Iterator<RedisClusterNode> nodes;   // 集群时待扫描的主节点, 非集群为null
+
+        private Cursor<byte[]> cursor;
+
+        private boolean closed;
+
+        KeyScanner(RedisConnection connection, ScanOptions options) {
+            this.connection = connection;
+            this.options = options;
+            if (connection instanceof RedisClusterConnection) {
+                List<RedisClusterNode> masters = new ArrayList<>();
+                for (RedisClusterNode node : ((RedisClusterConnection) connection).clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        masters.add(node);
+                    }
+                }
+                this.nodes = masters.iterator();
+            } else {
+                this.nodes = null;
+                this.cursor = connection.scan(options);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!closed) {
+                if (cursor != null && cursor.hasNext()) {
+                    return true;
+                }
+                if (nodes == null || !nodes.hasNext()) {
+                    close();   // 遍历完立即释放连接
+                    return false;
+                }
+                closeCursor();
+                cursor = ((RedisClusterConnection) connection).scan(nodes.next(), options);
+            }
+            return false;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return new String(cursor.next(), StringUtils.UTF8);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeCursor();
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        }
+
+        private void closeCursor() {
+            if (cursor != null && !cursor.isClosed()) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    // 游标关闭失败不影响结果, 连接随后关闭
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
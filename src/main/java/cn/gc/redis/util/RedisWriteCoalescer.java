@@ -0,0 +1,231 @@
+package cn.gc.redis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 写入合并，与RedisTemplateUtil.saveStr/saveHash写法相同，但不立即发送：各线程的写入放入无锁队列，
+ * 由一个flush线程攒够max-batch条或最早一条等了max-delay-micros后作为一个pipeline发出，调用方拿到的future在flush后完成。
+ * 需配置redis.coalesce.enabled=true开启，未开启时直接写入并返回已完成的future
+ **/
+@Component
+public class RedisWriteCoalescer {
+    private static Logger log = LoggerFactory.getLogger(RedisWriteCoalescer.class);
+
+    @Value("${redis.coalesce.enabled:false}")
+    private boolean enabled;
+
+    @Value("${redis.coalesce.max-batch:128}")
+    private int maxBatch;   // 一个pipeline最多多少条写入, 攒够立即发送
+
+    @Value("${redis.coalesce.max-delay-micros:200}")
+    private long maxDelayMicros;   // 最早一条写入最多等多久, 单位微秒, 延迟上限为此值加一次pipeline往返
+
+    @Autowired
+    private RedisTemplate<Object, Object> redisTemplate;
+
+    @Autowired
+    private RedisTemplateUtil redisTemplateUtil;
+
+    private final Queue<Write> queue = new ConcurrentLinkedQueue<>();   // 多生产者单消费者
+
+    private final AtomicInteger pending = new AtomicInteger();   // 队列中的写入数, 比遍历队列求size便宜
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "redis-write-coalescer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        flushRemaining();   // flush线程没等到的写入由当前线程发送, 不让future一直挂着
+    }
+
+    /**
+     * 保存字符串类型值
+     *
+     * @param key   key
+     * @param value value
+     * @return flush完成后完成的future
+     */
+    public <K, V> CompletableFuture<Void> saveStr(K key, V value) {
+        if (!running) {
+            return direct(() -> redisTemplateUtil.saveStr(key, value));
+        }
+        return submit(operations -> operations.opsForValue().set(key, value));
+    }
+
+    /**
+     * 保存字符串类型值并设置过期时间
+     *
+     * @param key      key
+     * @param value    value
+     * @param time     保留时间长度
+     * @param timeUnit 时间单位
+     * @return flush完成后完成的future
+     */
+    public <K, V> CompletableFuture<Void> saveStr(K key, V value, long time, TimeUnit timeUnit) {
+        if (!running) {
+            return direct(() -> redisTemplateUtil.saveStr(key, value, time, timeUnit));
+        }
+        return submit(operations -> operations.opsForValue().set(key, value, time, timeUnit));
+    }
+
+    /**
+     * 保存hash
+     *
+     * @param key   key
+     * @param field field
+     * @param value value
+     * @return flush完成后完成的future
+     */
+    public <K, F, V> CompletableFuture<Void> saveHash(K key, F field, V value) {
+        if (!running) {
+            return direct(() -> redisTemplateUtil.saveHash(key, field, value));
+        }
+        return submit(operations -> operations.opsForHash().put(key, field, value));
+    }
+
+    private CompletableFuture<Void> direct(Runnable write) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            write.run();
+            future.complete(null);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> submit(Consumer<RedisOperations<Object, Object>> command) {
+        Write write = new Write(command);
+        queue.offer(write);
+        int size = pending.incrementAndGet();
+        if (!running) {
+            // 入队前检查时还在运行, 之后stop已开始: stop的清理可能已经结束, 由当前线程发送, 队列poll保证每条只发一次
+            flushRemaining();
+        } else if (size == 1 || size == maxBatch) {   // 开始计时或已攒够, 其余情况flush线程自己会醒
+            LockSupport.unpark(flusher);
+        }
+        return write.future;
+    }
+
+    /**
+     * flush线程：队列空时挂起，有写入后最多等max-delay-micros或攒够max-batch条
+     */
+    private void flushLoop() {
+        List<Write> batch = new ArrayList<>(maxBatch);
+        long maxDelay = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        while (running || pending.get() > 0) {
+            if (pending.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = System.nanoTime() + maxDelay;
+            long remaining;
+            while (running && pending.get() < maxBatch && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            Write write;
+            while (batch.size() < maxBatch && (write = queue.poll()) != null) {
+                pending.decrementAndGet();
+                batch.add(write);
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 在当前线程发送队列中剩余的写入，用于关闭时
+     */
+    private void flushRemaining() {
+        List<Write> rest = new ArrayList<>();
+        Write write;
+        while ((write = queue.poll()) != null) {
+            pending.decrementAndGet();
+            rest.add(write);
+        }
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+
+    /**
+     * 一批写入作为一个pipeline发送，失败时整批的future都异常完成
+     */
+    private void flush(List<Write> batch) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")   // 回调拿到的就是redisTemplate本身, 类型参数为<Object, Object>
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    for (Write write : batch) {
+                        write.command.accept((RedisOperations<Object, Object>) operations);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("合并写入失败, 共{}条: {}", batch.size(), e.getMessage());
+            for (Write write : batch) {
+                write.future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Write write : batch) {
+            write.future.complete(null);
+        }
+    }
+
+    /**
+     * 排队中的一条写入
+     */
+    private static class Write {
+        /** 在pipeline中执行的命令 */
+        private final Consumer<RedisOperations<Object, Object>> command;
+        /** flush后完成 */
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Write(Consumer<RedisOperations<Object, Object>> command) {
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cn.gc.redis.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 轮询获取锁时的重试间隔策略，可按调用传入，也可按key前缀注册到RedisLockUtil；
+ * 固定间隔会让所有等待者同时重试，锁释放后redis压力集中，抖动策略把重试打散
+ **/
+@FunctionalInterface
+public interface RetryStrategy {
+
+    /**
+     * 下一次重试前等待多久
+     *
+     * @param attempt   第几次重试，从1开始
+     * @param lastDelay 上一次等待的时长，第一次为0
+     * @return 等待时长 单位ms
+     */
+    long nextDelay(int attempt, long lastDelay);
+
+    /**
+     * 固定间隔
+     *
+     * @param interval 间隔 单位ms
+     */
+    static RetryStrategy fixed(long interval) {
+        return (attempt, lastDelay) -> interval;
+    }
+
+    /**
+     * 指数退避+完全抖动: 在[1, min(cap, base * 2^(attempt-1))]之间随机
+     *
+     * @param base 初始间隔 单位ms
+     * @param cap  最大间隔 单位ms
+     */
+    static RetryStrategy exponentialJitter(long base, long cap) {
+        return (attempt, lastDelay) -> {
+            int shift = Math.min(attempt - 1, 30);
+            long ceiling = base > (cap >> shift) ? cap : Math.min(cap, base << shift);
+            return 1 + ThreadLocalRandom.current().nextLong(Math.max(ceiling, 1L));
+        };
+    }
+
+    /**
+     * 去相关抖动: 在[base, 上一次间隔*3]之间随机，不超过cap
+     *
+     * @param base 初始间隔 单位ms
+     * @param cap  最大间隔 单位ms
+     */
+    static RetryStrategy decorrelatedJitter(long base, long cap) {
+        return (attempt, lastDelay) -> {
+            long upper = Math.max(base, Math.max(lastDelay, base) * 3);
+            return Math.min(cap, base + ThreadLocalRandom.current().nextLong(upper - base + 1));
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package cn.gc.redis.util;
+
+import java.util.List;
+
+/**
+ * @Author: gc
+ * @Date: 2026/10/17
+ * @Description: 直接把字符序列按UTF-8编码为恰好大小的字节数组，不经过toString、拼接字符串和平台默认字符集；
+ * 先算长度再一次写入，每个值只分配交给redis驱动的那一个数组(pipeline中驱动持有该数组直到发送，不能复用)
+ **/
+final class Utf8Encoder {
+
+    private Utf8Encoder() {
+    }
+
+    /**
+     * 编码任意值，字符序列和整数直接编码，其他类型取String.valueOf；
+     * null抛出NullPointerException，与原先value.toString()一致，不写入"null"字符串
+     */
+    static byte[] encode(Object value) {
+        if (value == null) {
+            throw new NullPointerException("value不能为null");
+        }
+        if (value instanceof CharSequence) {
+            return encode((CharSequence) value);
+        }
+        if ((value instanceof Long || value instanceof Integer) && ((Number) value).longValue() != Long.MIN_VALUE) {
+            return encodeLong(((Number) value).longValue());
+        }
+        return encode(String.valueOf(value));
+    }
+
+    static byte[] encode(CharSequence chars) {
+        byte[] bytes = new byte[encodedLength(chars)];
+        encode(chars, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * 用分隔符连接后编码，等同于StringUtils.listToStr(items, separator)再编码
+     */
+    static byte[] join(List<? extends CharSequence> items, char separator) {
+        if (items == null || items.isEmpty()) {
+            return new byte[0];
+        }
+        int length = (items.size() - 1) * encodedLength(separator);
+        for (CharSequence item : items) {
+            length += encodedLength(item == null ? "null" : item);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                offset = encodeChar(separator, bytes, offset);
+            }
+            CharSequence item = items.get(i);
+            offset = encode(item == null ? "null" : item, bytes, offset);
+        }
+        return bytes;
+    }
+
+    private static int encodedLength(char c) {
+        return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    static int encodedLength(CharSequence chars) {
+        int length = 0;
+        for (int i = 0, n = chars.length(); i < n; i++) {
+            char c = chars.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;   // 不成对的代理字符编码为'?', 与String.getBytes一致
+            } else {
+                length += encodedLength(c);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 写入dest，返回写入后的位置
+     */
+    static int encode(CharSequence chars, byte[] dest, int offset) {
+        for (int i = 0, n = chars.length(); i < n; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                dest[offset++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                dest[offset++] = (byte) (0xF0 | (codePoint >> 18));
+                dest[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                dest[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                dest[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                dest[offset++] = '?';
+            } else {
+                offset = encodeChar(c, dest, offset);
+            }
+        }
+        return offset;
+    }
+
+    private static int encodeChar(char c, byte[] dest, int offset) {
+        if (c < 0x80) {
+            dest[offset++] = (byte) c;
+        } else if (c < 0x800) {
+            dest[offset++] = (byte) (0xC0 | (c >> 6));
+            dest[offset++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            dest[offset++] = (byte) (0xE0 | (c >> 12));
+            dest[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            dest[offset++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return offset;
+    }
+
+    /**
+     * 十进制整数直接写数字，不经过Long.toString
+     */
+    private static byte[] encodeLong(long value) {
+        boolean negative = value < 0;
+        long remain = negative ? -value : value;
+        int digits = 1;
+        for (long n = remain; n >= 10; n /= 10) {
+            digits++;
+        }
+        byte[] bytes = new byte[negative ? digits + 1 : digits];
+        int offset = bytes.length;
+        do {
+            bytes[--offset] = (byte) ('0' + remain % 10);
+            remain /= 10;
+        } while (remain > 0);
+        if (negative) {
+            bytes[0] = '-';
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,183 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactRedisSerializerTest {
+
+	private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+	private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+	@Test
+	public void builtInTypesRoundTrip() {
+		List<Object> values = Arrays.asList("", "abc", "中文😀", 0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE,
+				0L, -64L, 64L, Long.MIN_VALUE, Long.MAX_VALUE, true, false, 1.5d, Double.NaN, -0.25f,
+				(short) -3, (byte) 0x7F, 'x', '￿');
+		for (Object value : values) {
+			Object read = serializer.deserialize(serializer.serialize(value));
+			assertEquals(value.getClass(), read.getClass());
+			assertEquals(value, read);
+		}
+		assertArrayEquals(new byte[]{0, -1, 127}, (byte[]) serializer.deserialize(serializer.serialize(new byte[]{0, -1, 127})));
+	}
+
+	@Test
+	public void nullAndEmpty() {
+		assertEquals(0, serializer.serialize(null).length);
+		assertNull(serializer.deserialize(null));
+		assertNull(serializer.deserialize(new byte[0]));
+	}
+
+	@Test
+	public void readsJdkSerializedData() {
+		List<Object> values = Arrays.asList("旧数据", 42, 42L, new Date(0L), new ArrayList<>(Arrays.asList(1, "a")));
+		for (Object value : values) {
+			byte[] bytes = jdkSerializer.serialize(value);
+			assertEquals((byte) 0xAC, bytes[0]);
+			assertEquals((byte) 0xED, bytes[1]);
+			assertEquals(value, serializer.deserialize(bytes));
+		}
+	}
+
+	@Test
+	public void unregisteredTypesFallBackToJdk() {
+		ArrayList<Object> value = new ArrayList<>(Arrays.asList(1, "a"));
+		byte[] bytes = serializer.serialize(value);
+		assertEquals((byte) 0xAC, bytes[0]);
+		assertEquals(value, serializer.deserialize(bytes));
+	}
+
+	@Test
+	public void registeredTypeRoundTrip() {
+		serializer.register(300, Point.class, new PointCodec());
+		Point point = new Point(-7, "原点");
+		byte[] bytes = serializer.serialize(point);
+		assertTrue(bytes.length < jdkSerializer.serialize(point).length);
+		Point read = (Point) serializer.deserialize(bytes);
+		assertEquals(-7, read.x);
+		assertEquals("原点", read.name);
+	}
+
+	@Test
+	public void duplicateIdIsRejected() {
+		serializer.register(1, Point.class, new PointCodec());
+		try {
+			serializer.register(1, Date.class, new DateCodec());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// 期望
+		}
+		// 失败的注册不能留下半条记录
+		assertEquals((byte) 0xAC, serializer.serialize(new Date(0L))[0]);
+		serializer.register(2, Date.class, new DateCodec());
+		assertEquals(new Date(5L), serializer.deserialize(serializer.serialize(new Date(5L))));
+	}
+
+	@Test
+	public void duplicateTypeIsRejected() {
+		serializer.register(1, Point.class, new PointCodec());
+		try {
+			serializer.register(2, Point.class, new PointCodec());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// 期望
+		}
+		byte[] bytes = serializer.serialize(new Point(1, "a"));
+		assertEquals(1L, bytes[1]);   // 仍按第一次注册的id写入
+	}
+
+	@Test(expected = SerializationException.class)
+	public void unknownTypeIdFails() {
+		CompactRedisSerializer writer = new CompactRedisSerializer().register(9, Point.class, new PointCodec());
+		serializer.deserialize(writer.serialize(new Point(1, "a")));
+	}
+
+	/**
+	 * 不是JMH基准(构建中没有JMH)，对比JDK序列化的字节数和每次序列化+反序列化的耗时，
+	 * 只断言字节数更少，耗时随断言信息给出
+	 */
+	@Test
+	public void compareWithJdkSerialization() {
+		serializer.register(300, Point.class, new PointCodec());
+		List<Object> samples = Arrays.asList("order:20261017:paid", 123456789L, 42, new Point(12, "仓库A"));
+		int iterations = 20000;
+		for (Object sample : samples) {
+			int compactSize = serializer.serialize(sample).length;
+			int jdkSize = jdkSerializer.serialize(sample).length;
+			long compactNanos = time(serializer, sample, iterations);
+			long jdkNanos = time(jdkSerializer, sample, iterations);
+			assertTrue(sample.getClass().getSimpleName() + ": compact " + compactSize + " bytes " + compactNanos
+					+ " ns/次, jdk " + jdkSize + " bytes " + jdkNanos + " ns/次", compactSize < jdkSize);
+		}
+	}
+
+	private static long time(RedisSerializer<Object> redisSerializer, Object sample, int iterations) {
+		for (int i = 0; i < iterations; i++) {   // 预热
+			redisSerializer.deserialize(redisSerializer.serialize(sample));
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			redisSerializer.deserialize(redisSerializer.serialize(sample));
+		}
+		return (System.nanoTime() - start) / iterations;
+	}
+
+	static class Point implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final int x;
+		final String name;
+
+		Point(int x, String name) {
+			this.x = x;
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return "Point(" + x + ", " + name + ")";
+		}
+	}
+
+	static class PointCodec implements CompactRedisSerializer.Codec<Point> {
+		@Override
+		public void write(Point value, DataOutput out) throws IOException {
+			out.writeInt(value.x);
+			out.writeUTF(value.name);
+		}
+
+		@Override
+		public Point read(DataInput in) throws IOException {
+			return new Point(in.readInt(), in.readUTF());
+		}
+	}
+
+	static class DateCodec implements CompactRedisSerializer.Codec<Date> {
+		@Override
+		public void write(Date value, DataOutput out) throws IOException {
+			out.writeLong(value.getTime());
+		}
+
+		@Override
+		public Date read(DataInput in) throws IOException {
+			return new Date(in.readLong());
+		}
+	}
+}
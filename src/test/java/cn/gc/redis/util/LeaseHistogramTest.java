@@ -0,0 +1,66 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LeaseHistogramTest {
+
+	@Test
+	public void emptyHistogramReturnsZero() {
+		assertEquals(0L, new LeaseHistogram().percentile(0.999));
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		LeaseHistogram histogram = new LeaseHistogram();
+		for (long i = 0; i < 8; i++) {
+			histogram.record(i);
+		}
+		assertEquals(8L, histogram.count());
+		assertEquals(0L, histogram.percentile(0.1));
+		assertEquals(3L, histogram.percentile(0.5));
+		assertEquals(7L, histogram.percentile(1.0));
+	}
+
+	@Test
+	public void percentileIsUpperBoundWithinRelativeError() {
+		LeaseHistogram histogram = new LeaseHistogram();
+		for (long i = 1; i <= 10000; i++) {
+			histogram.record(i);
+		}
+		assertWithin(5000L, histogram.percentile(0.5));
+		assertWithin(9900L, histogram.percentile(0.99));
+		assertWithin(9990L, histogram.percentile(0.999));
+		assertWithin(10000L, histogram.percentile(1.0));
+	}
+
+	@Test
+	public void tailDominatesHighQuantile() {
+		LeaseHistogram histogram = new LeaseHistogram();
+		for (int i = 0; i < 998; i++) {
+			histogram.record(10L);
+		}
+		histogram.record(2000L);
+		histogram.record(2000L);
+		assertWithin(10L, histogram.percentile(0.99));
+		assertWithin(2000L, histogram.percentile(0.999));
+	}
+
+	@Test
+	public void negativeAndHugeValuesAreClamped() {
+		LeaseHistogram histogram = new LeaseHistogram();
+		assertEquals(1L, histogram.record(-5L));
+		assertEquals(2L, histogram.record(Long.MAX_VALUE));
+		assertEquals(0L, histogram.percentile(0.5));
+		assertEquals(Long.MAX_VALUE, histogram.percentile(1.0));
+	}
+
+	/**
+	 * 返回桶的上界: 不小于真实值, 且相对误差不超过12.5%
+	 */
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(expected + " -> " + actual, actual >= expected && actual <= expected + expected / 8);
+	}
+}
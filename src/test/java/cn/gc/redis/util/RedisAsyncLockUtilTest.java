@@ -0,0 +1,51 @@
+package cn.gc.redis.util;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用替身异步命令验证stop之后仍在等待的获取会以异常完成，不会挂起
+ */
+public class RedisAsyncLockUtilTest {
+
+	@Test
+	@SuppressWarnings("unchecked")   // mock泛型类型
+	public void retryAfterStopFailsInsteadOfHanging() throws Exception {
+		CompletableFuture<Object> held = CompletableFuture.completedFuture(Arrays.<Object>asList(0L, 1000L));   // 锁被占用, 还剩1000ms
+		RedisFuture<Object> reply = mock(RedisFuture.class);
+		when(reply.whenComplete(any())).thenAnswer(invocation -> held.whenComplete(invocation.<BiConsumer<Object, Throwable>>getArgument(0)));
+		RedisClusterAsyncCommands<byte[], byte[]> commands = mock(RedisClusterAsyncCommands.class);
+		when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(), any())).thenReturn(reply);   // 最后的any()匹配任意个数的参数
+		RedisAsyncLockUtil lockUtil = new RedisAsyncLockUtil();
+		ReflectionTestUtils.setField(lockUtil, "lockSubscriber", new RedisLockSubscriber());
+		ReflectionTestUtils.setField(lockUtil, "connection", mock(RedisConnection.class));
+		ReflectionTestUtils.setField(lockUtil, "commands", commands);
+		ReflectionTestUtils.setField(lockUtil, "timer", Executors.newSingleThreadScheduledExecutor());
+		lockUtil.stop();
+		CompletableFuture<LockHandle> future = lockUtil.tryLockAsync("order:1", 5000L, 3000L);
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package cn.gc.redis.util;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 用替身pipeline验证分块、并发上限，以及停止和中断时不会挂起或丢下在途的块
+ */
+public class RedisBulkLoaderTest {
+
+	private static final int PARALLELISM = 2;
+
+	private final StubPipeline redis = new StubPipeline();
+
+	private final RedisBulkLoader loader = new RedisBulkLoader();
+
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	public RedisBulkLoaderTest() {
+		ReflectionTestUtils.setField(loader, "chunkSize", 100);
+		ReflectionTestUtils.setField(loader, "chunkBytes", 1 << 20);
+		ReflectionTestUtils.setField(loader, "fieldsPerCommand", 30);
+		ReflectionTestUtils.setField(loader, "parallelism", PARALLELISM);
+		ReflectionTestUtils.setField(loader, "redisTemplate", redis);
+		loader.start();
+	}
+
+	@After
+	public void tearDown() {
+		redis.release.countDown();
+		loader.stop();
+		callers.shutdownNow();
+	}
+
+	@Test
+	public void writesEveryFieldInChunks() {
+		redis.release.countDown();
+		assertEquals(1050L, loader.loadHash("h", entries(1050, -1)));
+		assertEquals(1050, redis.fields.get());
+		assertEquals(11, redis.chunks.get());
+		assertEquals(10 * 4 + 2, redis.commands.get());   // 每块100个field分4个HMSET, 最后一块50个分2个
+	}
+
+	@Test
+	public void concurrentCallersShareParallelism() throws Exception {
+		Future<Long> first = callers.submit(() -> loader.loadHash("a", entries(1000, -1)));
+		Future<Long> second = callers.submit(() -> loader.loadHash("b", entries(1000, -1)));
+		Thread.sleep(200L);
+		assertEquals(PARALLELISM, redis.running.get());
+		redis.release.countDown();
+		assertEquals(1000L, first.get(5, TimeUnit.SECONDS).longValue());
+		assertEquals(1000L, second.get(5, TimeUnit.SECONDS).longValue());
+		assertTrue("同时发送的块: " + redis.maxRunning.get(), redis.maxRunning.get() <= PARALLELISM);
+	}
+
+	@Test
+	public void interruptWaitsForSentChunks() throws Exception {
+		Future<Long> load = callers.submit(() -> loader.loadHash("h", entries(1000, 250)));
+		try {
+			load.get(500, TimeUnit.MILLISECONDS);
+			fail();
+		} catch (TimeoutException e) {
+			// 已发出的块还在等待, 调用方不能提前返回
+		}
+		assertEquals(PARALLELISM, redis.running.get());
+		redis.release.countDown();
+		try {
+			load.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("中断"));
+		}
+		assertEquals(0, redis.running.get());
+		assertEquals(PARALLELISM, redis.chunks.get());
+	}
+
+	@Test
+	public void stopDoesNotHangLoader() throws Exception {
+		Future<Long> load = callers.submit(() -> loader.loadHash("h", entries(1000, -1)));
+		Thread.sleep(200L);
+		loader.stop();
+		try {
+			load.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			// 停止后抛出异常而不是挂起
+		}
+	}
+
+	@Test
+	public void nullValueIsRejected() {
+		redis.release.countDown();
+		Iterator<Map.Entry<String, Object>> entries = Collections.<Map.Entry<String, Object>>singletonList(
+				new AbstractMap.SimpleImmutableEntry<>("f", null)).iterator();
+		try {
+			loader.loadHash("h", entries);
+			fail();
+		} catch (NullPointerException e) {
+			// 与setHash一致, 不写入"null"
+		}
+		assertEquals(0, redis.fields.get());
+	}
+
+	/**
+	 * count个field，读到第interruptAt个时中断调用线程(小于0不中断)
+	 */
+	private static Iterator<Map.Entry<String, Object>> entries(int count, int interruptAt) {
+		return new Iterator<Map.Entry<String, Object>>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < count;
+			}
+
+			@Override
+			public Map.Entry<String, Object> next() {
+				if (next == interruptAt) {
+					Thread.currentThread().interrupt();
+				}
+				int i = next++;
+				return new AbstractMap.SimpleImmutableEntry<>("f" + i, i);
+			}
+		};
+	}
+
+	/**
+	 * 统计pipeline里的HMSET，release之前每块都阻塞在发送中
+	 */
+	private static class StubPipeline extends RedisTemplateUtil {
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+		private final AtomicInteger chunks = new AtomicInteger();
+		private final AtomicInteger commands = new AtomicInteger();
+		private final AtomicInteger fields = new AtomicInteger();
+
+		@Override
+		public List<Object> executePipelined(RedisCallback<?> action) {
+			int current = running.incrementAndGet();
+			maxRunning.accumulateAndGet(current, Math::max);
+			try {
+				release.await();
+				action.doInRedis(connection());
+				chunks.incrementAndGet();
+				return Collections.emptyList();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException("发送被中断", e);
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+
+		private RedisConnection connection() {
+			return (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RedisConnection.class},
+					(proxy, method, args) -> {
+						if (method.getName().equals("hMSet")) {
+							commands.incrementAndGet();
+							fields.addAndGet(((Map<?, ?>) args[1]).size());
+						}
+						return null;
+					});
+		}
+	}
+}
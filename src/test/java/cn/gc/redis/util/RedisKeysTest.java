@@ -0,0 +1,69 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RedisKeysTest {
+
+	@Test
+	public void slotMatchesClusterSpec() {
+		assertEquals(12739, RedisKeys.slot("123456789"));   // CRC16("123456789") = 0x31C3
+		assertEquals(RedisKeys.slot("user1000"), RedisKeys.slot("{user1000}.following"));
+		assertEquals(RedisKeys.slot("{}x"), RedisKeys.slot("{}x"));
+	}
+
+	@Test
+	public void hashTagUsesFirstOpenAndNextClose() {
+		assertTrue(RedisKeys.hasHashTag("{order-1}:debit"));
+		assertTrue(RedisKeys.hasHashTag("a{b}c{d}"));
+		assertTrue(RedisKeys.hasHashTag("{a}}b"));
+		assertFalse(RedisKeys.hasHashTag("order:1"));
+		assertFalse(RedisKeys.hasHashTag("{}x"));
+		assertFalse(RedisKeys.hasHashTag("x{}"));
+		assertFalse(RedisKeys.hasHashTag("a}b{"));
+		assertFalse(RedisKeys.hasHashTag("a{b"));
+	}
+
+	@Test
+	public void derivedKeyStaysInSameSlot() {
+		for (String key : Arrays.asList("order:1", "{order-1}:debit", "a{b}c{d}", "{a}}b", "a{b", "{a", "锁:1")) {
+			String derived = RedisKeys.derived(key, "fencing", true);
+			assertEquals(key + " -> " + derived, RedisKeys.slot(key), RedisKeys.slot(derived));
+		}
+		assertEquals("{order:1}:fencing", RedisKeys.derived("order:1", "fencing", true));
+		assertEquals("{order-1}:debit:fencing", RedisKeys.derived("{order-1}:debit", "fencing", true));
+	}
+
+	@Test
+	public void derivedRejectsKeysWhoseCloseBraceWouldCutTheTagInCluster() {
+		for (String key : Arrays.asList("a}b", "{}x", "x{}", "}")) {
+			try {
+				RedisKeys.derived(key, "fencing", true);
+				throw new AssertionError("应拒绝: " + key);
+			} catch (IllegalArgumentException e) {
+				// 预期
+			}
+		}
+	}
+
+	@Test
+	public void derivedAppendsSuffixToCloseBraceKeysInStandalone() {
+		assertEquals("a}b:fencing", RedisKeys.derived("a}b", "fencing", false));
+		assertEquals("x{}:fencing", RedisKeys.derived("x{}", "fencing", false));
+		assertEquals("{order:1}:fencing", RedisKeys.derived("order:1", "fencing", false));   // 其他锁名与集群一致
+		assertEquals("{order-1}:debit:fencing", RedisKeys.derived("{order-1}:debit", "fencing", false));
+	}
+
+	@Test
+	public void taggedKeysShareSlot() {
+		assertEquals("{order-1}:debit", RedisKeys.tagged("order-1", "debit"));
+		assertTrue(RedisKeys.sameSlot(Arrays.asList(RedisKeys.tagged("order-1", "debit"), RedisKeys.tagged("order-1", "credit"))));
+		assertFalse(RedisKeys.sameSlot(Arrays.asList("order:1", "order:2")));
+		assertTrue(RedisKeys.sameSlot(Arrays.asList("order:1")));
+	}
+}
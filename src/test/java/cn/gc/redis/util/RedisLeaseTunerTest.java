@@ -0,0 +1,73 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RedisLeaseTunerTest {
+
+	private final RedisLeaseTuner tuner = new RedisLeaseTuner();
+
+	@Test
+	public void prefixIsTextBeforeLastColon() {
+		assertEquals("order", RedisLeaseTuner.prefix("order:123"));
+		assertEquals("a:b", RedisLeaseTuner.prefix("a:b:c"));
+		assertEquals("plain", RedisLeaseTuner.prefix("plain"));
+		assertEquals(":x", RedisLeaseTuner.prefix(":x"));
+	}
+
+	@Test
+	public void defaultUntilEnoughSamples() {
+		for (int i = 0; i < 99; i++) {
+			tuner.record("order:" + i, 1000L);
+		}
+		assertEquals(3000L, tuner.suggestLease("order:1", 3000L));
+		tuner.record("order:99", 1000L);
+		long lease = tuner.suggestLease("order:1", 3000L);
+		assertTrue(String.valueOf(lease), lease >= 1600L && lease <= 1800L);
+		assertEquals(lease, tuner.suggestions().get("order").longValue());
+	}
+
+	@Test
+	public void suggestionIsCachedBetweenRefreshes() {
+		for (int i = 0; i < 100; i++) {
+			tuner.record("order:1", 1000L);
+		}
+		long lease = tuner.suggestLease("order:1", 3000L);
+		for (int i = 0; i < 99; i++) {
+			tuner.record("order:1", 20000L);
+		}
+		assertEquals(lease, tuner.suggestLease("order:1", 3000L));
+		tuner.record("order:1", 20000L);
+		assertEquals(30000L, tuner.suggestLease("order:1", 3000L));
+	}
+
+	@Test
+	public void suggestionIsClamped() {
+		for (int i = 0; i < 100; i++) {
+			tuner.record("fast:1", 1L);
+		}
+		assertEquals(500L, tuner.suggestLease("fast:1", 3000L));
+	}
+
+	@Test
+	public void prefixCountIsBounded() {
+		for (int i = 0; i < RedisLeaseTuner.MAX_PREFIXES + 10; i++) {
+			tuner.record("p" + i + ":1", 1000L);
+		}
+		for (int i = 0; i < 100; i++) {
+			tuner.record("overflow:1", 1000L);
+		}
+		assertEquals(3000L, tuner.suggestLease("overflow:1", 3000L));
+		Map<String, Long> suggestions = tuner.suggestions();
+		assertTrue(suggestions.isEmpty());
+		tuner.reset();
+		for (int i = 0; i < 100; i++) {
+			tuner.record("overflow:1", 1000L);
+		}
+		assertTrue(tuner.suggestLease("overflow:1", 3000L) < 3000L);
+	}
+}
@@ -0,0 +1,145 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 直接投递释放消息，验证等待者按登记顺序唤醒、跳过已离开的等待者，以及没用上的通知会转交
+ */
+public class RedisLockSubscriberTest {
+
+	private static final String KEY = "order:1";
+
+	private final RedisLockSubscriber subscriber = new RedisLockSubscriber();
+
+	@Test
+	public void wakesWaitersInRegistrationOrder() {
+		List<Integer> woken = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			int id = i;
+			subscriber.subscribe(KEY, () -> woken.add(id));
+		}
+		for (int i = 0; i < 3; i++) {
+			release(KEY);
+		}
+		assertEquals(Arrays.asList(0, 0, 0), woken);   // 队首还在等待时一直唤醒它
+		woken.clear();
+		long second = subscriber.subscribe("order:2", () -> woken.add(1));
+		subscriber.subscribe("order:2", () -> woken.add(2));
+		release("order:2");
+		subscriber.unsubscribe("order:2", second);
+		release("order:2");
+		assertEquals(Arrays.asList(1, 2), woken);
+	}
+
+	@Test
+	public void skipsWaitersThatNoLongerWait() {
+		AtomicInteger gone = new AtomicInteger();
+		AtomicInteger waiting = new AtomicInteger();
+		subscriber.subscribe(KEY, () -> {
+			gone.incrementAndGet();
+			return false;
+		});
+		subscriber.subscribe(KEY, () -> waiting.incrementAndGet() > 0);
+		release(KEY);
+		release(KEY);
+		assertEquals("不再等待的登记只被问一次就移除", 1, gone.get());
+		assertEquals(2, waiting.get());
+	}
+
+	@Test
+	public void unusedSignalIsPassedOnWhenWaiterLeaves() throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger attempts = new AtomicInteger();
+		boolean locked = subscriber.tryAcquire(KEY, 50L, () -> {
+			if (attempts.incrementAndGet() == 2) {   // 订阅后的重试: 期间锁被释放, 随后等待超时
+				subscriber.subscribe(KEY, () -> next.incrementAndGet() > 0);
+				release(KEY);
+				sleep(80L);
+			}
+			return 1000L;
+		});
+		assertFalse(locked);
+		assertEquals(2, attempts.get());
+		assertEquals("超时离开的等待者应把通知交给下一个", 1, next.get());
+	}
+
+	@Test
+	public void signalUsedForRetryIsNotPassedOn() throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger attempts = new AtomicInteger();
+		boolean locked = subscriber.tryAcquire(KEY, 1000L, () -> {
+			int attempt = attempts.incrementAndGet();
+			if (attempt == 2) {
+				subscriber.subscribe(KEY, () -> next.incrementAndGet() > 0);
+				release(KEY);
+			}
+			return attempt < 3 ? Long.valueOf(1000L) : null;
+		});
+		assertTrue(locked);
+		assertEquals(3, attempts.get());
+		assertEquals(0, next.get());
+	}
+
+	@Test
+	public void multiKeyWaiterPassesOnSignalWhenOtherKeyIsHeld() throws InterruptedException {
+		AtomicInteger single = new AtomicInteger();
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicInteger wokenBeforeLastAttempt = new AtomicInteger(-1);
+		boolean locked = subscriber.tryAcquire(Arrays.asList("a", "b"), 1000L, () -> {
+			int attempt = attempts.incrementAndGet();
+			if (attempt == 2) {   // 多锁等待者排在前面, a释放时先唤醒它
+				subscriber.subscribe("a", () -> single.incrementAndGet() > 0);
+				release("a");
+			} else if (attempt == 4) {
+				wokenBeforeLastAttempt.set(single.get());
+				return null;
+			}
+			return 10L;   // b仍被占用
+		});
+		assertTrue(locked);
+		assertEquals("b仍被占用时a的通知应转交给a上的单锁等待者", 1, wokenBeforeLastAttempt.get());
+		assertEquals(1, single.get());
+	}
+
+	@Test
+	public void multiKeyWaiterLeavingPassesOnOnlySignalledKeys() throws InterruptedException {
+		AtomicInteger onA = new AtomicInteger();
+		AtomicInteger onB = new AtomicInteger();
+		AtomicInteger attempts = new AtomicInteger();
+		boolean locked = subscriber.tryAcquire(Arrays.asList("a", "b"), 50L, () -> {
+			if (attempts.incrementAndGet() == 2) {
+				subscriber.subscribe("a", () -> onA.incrementAndGet() > 0);
+				subscriber.subscribe("b", () -> onB.incrementAndGet() > 0);
+				release("a");
+				sleep(80L);
+			}
+			return 1000L;
+		});
+		assertFalse(locked);
+		assertEquals(1, onA.get());
+		assertEquals(0, onB.get());
+	}
+
+	private void release(String key) {
+		subscriber.onMessage(new DefaultMessage(RedisLockSubscriber.channel(key).getBytes(StringUtils.UTF8),
+				key.getBytes(StringUtils.UTF8)), null);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
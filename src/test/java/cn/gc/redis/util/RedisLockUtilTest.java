@@ -0,0 +1,139 @@
+package cn.gc.redis.util;
+
+import ch.qos.logback.classic.Level;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用替身RedisTemplateUtil验证acquire凭证的释放语义，并测量无竞争时一次acquire/close的分配量
+ */
+public class RedisLockUtilTest {
+
+	private static final String KEY = "order:1";
+
+	private final StubRedisTemplateUtil redis = new StubRedisTemplateUtil();
+
+	private final RedisLockUtil lockUtil = StubRedisTemplateUtil.newLockUtil(redis);
+
+	private ch.qos.logback.classic.Logger logger;
+
+	private Level level;
+
+	@Before
+	public void setUp() {
+		logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(RedisLockUtil.class);
+		level = logger.getLevel();
+		logger.setLevel(Level.OFF);
+	}
+
+	@After
+	public void tearDown() {
+		logger.setLevel(level);
+	}
+
+	@Test
+	public void closeReleasesOnce() {
+		LockHandle handle = lockUtil.acquire(KEY, 0L);
+		assertEquals(7L, handle.getFencingToken());
+		handle.close();
+		handle.close();
+		assertEquals(1, redis.unlocks.get());
+		assertEquals(-1L, lockUtil.fencingToken(KEY));
+	}
+
+	@Test
+	public void staleCloseDoesNotReleaseLaterLock() {
+		LockHandle first = lockUtil.acquire(KEY, 0L);
+		first.close();
+		LockHandle second = lockUtil.acquire(KEY, 0L);
+		first.close();
+		assertEquals(1, redis.unlocks.get());
+		assertEquals(7L, lockUtil.fencingToken(KEY));
+		second.close();
+		assertEquals(2, redis.unlocks.get());
+	}
+
+	@Test
+	public void closeAfterReleaseLockDoesNothing() {
+		LockHandle handle = lockUtil.acquire(KEY, 0L);
+		assertTrue(lockUtil.releaseLock(KEY));
+		assertTrue(lockUtil.tryLock(KEY));
+		handle.close();
+		assertEquals(1, redis.unlocks.get());
+		assertEquals(7L, lockUtil.fencingToken(KEY));
+	}
+
+	@Test
+	public void reentrantHandlesReleaseOnLastClose() {
+		LockHandle outer = lockUtil.acquire(KEY, 0L);
+		LockHandle inner = lockUtil.acquire(KEY, 0L);
+		assertEquals(1, redis.locks.get());
+		inner.close();
+		assertEquals(0, redis.unlocks.get());
+		outer.close();
+		assertEquals(1, redis.unlocks.get());
+	}
+
+	@Test
+	public void closeBraceLockNamesWorkInStandalone() {
+		for (String key : new String[]{"a}b", "x{}"}) {
+			assertTrue(key, lockUtil.tryLock(key));
+			assertTrue(key, lockUtil.releaseLock(key));
+		}
+	}
+
+	@Test
+	public void closeOnOtherThreadIsRejected() throws InterruptedException {
+		LockHandle handle = lockUtil.acquire(KEY, 0L);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread other = new Thread(() -> {
+			try {
+				handle.close();
+			} catch (Throwable e) {
+				error.set(e);
+			}
+		});
+		other.start();
+		other.join();
+		assertTrue(error.get() instanceof IllegalMonitorStateException);
+		assertEquals(0, redis.unlocks.get());
+		handle.close();
+		assertEquals(1, redis.unlocks.get());
+	}
+
+	/**
+	 * 不是JMH基准(构建中没有JMH)，用线程分配计数器测量每次acquire/close的字节数(本机约900字节)；
+	 * 替身不分配，结果即锁层自身的分配，上限防止回退
+	 */
+	@Test
+	public void uncontendedAcquireAllocation() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+		long threadId = Thread.currentThread().getId();
+		int iterations = 20000;
+		for (int i = 0; i < iterations; i++) {   // 预热, 让JIT完成编译
+			try (LockHandle handle = lockUtil.acquire(KEY, 0L)) {
+				handle.getFencingToken();
+			}
+		}
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			try (LockHandle handle = lockUtil.acquire(KEY, 0L)) {
+				handle.getFencingToken();
+			}
+		}
+		long perOp = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+		assertTrue("每次acquire/close分配 " + perOp + " bytes", perOp < 1024L);
+	}
+}
@@ -0,0 +1,282 @@
+package cn.gc.redis.util;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用本地替身节点(只会应答SET和解锁脚本的最小RESP服务)验证多数派和超时逻辑
+ */
+public class RedisRedLockUtilTest {
+
+	private static final long NODE_TIMEOUT = 200L;
+
+	private final List<FakeNode> fakeNodes = new ArrayList<>();
+
+	private RedisRedLockUtil redLock;
+
+	@After
+	public void tearDown() {
+		if (redLock != null) {
+			redLock.stop();
+		}
+		for (FakeNode node : fakeNodes) {
+			node.close();
+		}
+	}
+
+	@Test
+	public void majorityGrantsLock() {
+		start(Mode.GRANT, Mode.GRANT, Mode.REFUSE);
+		LockHandle handle = redLock.tryLock("order:1", 0L, 1000L);
+		assertNotNull(handle);
+		assertEquals(-1L, handle.getFencingToken());
+		assertTrue(handle.getExpireAt() > System.currentTimeMillis());
+		assertTrue(redLock.releaseLock(handle));
+	}
+
+	@Test
+	public void minorityFailsAndRollsBackEveryNode() throws InterruptedException {
+		start(Mode.GRANT, Mode.REFUSE, Mode.REFUSE);
+		assertNull(redLock.tryLock("order:1", 0L, 1000L));
+		long deadline = System.currentTimeMillis() + 1000L;
+		while (!allReceivedUnlock() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		assertTrue("回滚应发到全部节点", allReceivedUnlock());
+	}
+
+	@Test
+	public void hangingMinorityDoesNotDelayAcquire() {
+		start(Mode.GRANT, Mode.GRANT, Mode.HANG);
+		long startTime = System.currentTimeMillis();
+		LockHandle handle = redLock.tryLock("order:1", 0L, 1000L);
+		long elapsed = System.currentTimeMillis() - startTime;
+		assertNotNull(handle);
+		assertTrue("凑够多数派后不应等待挂起的节点: " + elapsed, elapsed < NODE_TIMEOUT);
+	}
+
+	@Test
+	public void hangingMajorityTimesOut() {
+		start(Mode.GRANT, Mode.HANG, Mode.HANG);
+		long startTime = System.currentTimeMillis();
+		assertNull(redLock.tryLock("order:1", 0L, 1000L));
+		long elapsed = System.currentTimeMillis() - startTime;
+		assertTrue("应在节点超时附近放弃: " + elapsed, elapsed < NODE_TIMEOUT * 3);
+	}
+
+	@Test
+	public void releaseWaitsOnceForUnreachableNodes() {
+		start(Mode.GRANT, Mode.GRANT, Mode.GRANT);
+		LockHandle handle = redLock.tryLock("order:1", 0L, 1000L);
+		assertNotNull(handle);
+		for (FakeNode node : fakeNodes) {
+			node.mode = Mode.HANG;
+		}
+		long startTime = System.currentTimeMillis();
+		assertFalse(redLock.releaseLock(handle));
+		long elapsed = System.currentTimeMillis() - startTime;
+		// 逐个等待至少要3倍节点超时
+		assertTrue("全部节点应并行释放: " + elapsed, elapsed < NODE_TIMEOUT * 2 + 150L);
+	}
+
+	@Test
+	public void nodeDownAtStartCountsAsFailedVote() {
+		start(Mode.GRANT, Mode.GRANT, Mode.DOWN);
+		LockHandle handle = redLock.tryLock("order:1", 0L, 1000L);
+		assertNotNull("少数节点启动时不可达仍应能加锁", handle);
+		assertTrue(redLock.releaseLock(handle));
+	}
+
+	@Test
+	public void majorityDownAtStartFailsAcquire() {
+		start(Mode.GRANT, Mode.DOWN, Mode.DOWN);
+		assertNull(redLock.tryLock("order:1", 0L, 1000L));
+	}
+
+	@Test
+	public void noNodesConfiguredCreatesNoClientResources() {
+		start();
+		assertNull(ReflectionTestUtils.getField(redLock, "clientResources"));
+	}
+
+	private void start(Mode... modes) {
+		List<String> addresses = new ArrayList<>();
+		for (Mode mode : modes) {
+			FakeNode node = new FakeNode(mode);
+			fakeNodes.add(node);
+			addresses.add("127.0.0.1:" + node.port());
+			if (mode == Mode.DOWN) {
+				node.close();   // 端口上没有服务, 连接被拒绝
+			}
+		}
+		redLock = new RedisRedLockUtil();
+		ReflectionTestUtils.setField(redLock, "nodes", addresses.toArray(new String[0]));
+		ReflectionTestUtils.setField(redLock, "password", "");
+		ReflectionTestUtils.setField(redLock, "database", 0);
+		ReflectionTestUtils.setField(redLock, "nodeTimeout", NODE_TIMEOUT);
+		redLock.start();
+	}
+
+	private boolean allReceivedUnlock() {
+		for (FakeNode node : fakeNodes) {
+			if (node.unlocks.get() == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private enum Mode {
+		GRANT,   // SET NX成功, 解锁返回1
+		REFUSE,   // SET NX失败(已被占用), 解锁返回0
+		HANG,   // 不应答任何命令
+		DOWN   // 没有在监听
+	}
+
+	/**
+	 * 最小的RESP服务，每个连接一个线程
+	 */
+	private static class FakeNode {
+		private final ServerSocket server;
+		private final List<Socket> sockets = new ArrayList<>();
+		private final AtomicInteger unlocks = new AtomicInteger();
+		private volatile Mode mode;
+
+		FakeNode(Mode mode) {
+			this.mode = mode;
+			try {
+				server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			Thread acceptor = new Thread(this::accept, "fake-redis-" + server.getLocalPort());
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int port() {
+			return server.getLocalPort();
+		}
+
+		private void accept() {
+			try {
+				while (true) {
+					Socket socket = server.accept();
+					synchronized (sockets) {
+						sockets.add(socket);
+					}
+					Thread handler = new Thread(() -> serve(socket));
+					handler.setDaemon(true);
+					handler.start();
+				}
+			} catch (IOException e) {
+				// 已关闭
+			}
+		}
+
+		private void serve(Socket socket) {
+			try {
+				InputStream in = new BufferedInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				while (true) {
+					List<String> command = readCommand(in);
+					if (command == null) {
+						return;
+					}
+					String reply = reply(command.get(0).toUpperCase());
+					if (reply != null) {
+						out.write(reply.getBytes(StandardCharsets.UTF_8));
+						out.flush();
+					}
+				}
+			} catch (IOException e) {
+				// 连接关闭
+			}
+		}
+
+		private String reply(String name) {
+			Mode current = mode;
+			if (name.equals("EVALSHA") || name.equals("EVAL")) {
+				unlocks.incrementAndGet();
+			}
+			if (current == Mode.HANG) {
+				return null;
+			}
+			if (name.equals("SET")) {
+				return current == Mode.GRANT ? "+OK\r\n" : "$-1\r\n";
+			}
+			if (name.equals("EVALSHA") || name.equals("EVAL")) {
+				return current == Mode.GRANT ? ":1\r\n" : ":0\r\n";
+			}
+			return "+OK\r\n";
+		}
+
+		private static List<String> readCommand(InputStream in) throws IOException {
+			String header = readLine(in);
+			if (header == null) {
+				return null;
+			}
+			int count = Integer.parseInt(header.substring(1));
+			List<String> args = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int length = Integer.parseInt(readLine(in).substring(1));
+				byte[] bytes = new byte[length + 2];
+				int read = 0;
+				while (read < bytes.length) {
+					int n = in.read(bytes, read, bytes.length - read);
+					if (n < 0) {
+						return null;
+					}
+					read += n;
+				}
+				args.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+			}
+			return args;
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			StringBuilder line = new StringBuilder();
+			int c;
+			while ((c = in.read()) != -1) {
+				if (c == '\r') {
+					in.read();
+					return line.toString();
+				}
+				line.append((char) c);
+			}
+			return null;
+		}
+
+		void close() {
+			try {
+				server.close();
+				synchronized (sockets) {
+					for (Socket socket : sockets) {
+						socket.close();
+					}
+				}
+			} catch (IOException e) {
+				// 忽略
+			}
+		}
+	}
+}
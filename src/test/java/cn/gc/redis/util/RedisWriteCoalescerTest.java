@@ -0,0 +1,85 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+import org.mockito.Answers;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用替身RedisTemplate验证合并写入的批量发送，以及关闭与提交并发时每个future都会完成
+ */
+public class RedisWriteCoalescerTest {
+
+	private final AtomicInteger pipelines = new AtomicInteger();
+
+	private final AtomicInteger sent = new AtomicInteger();
+
+	@Test
+	public void writesAreBatchedIntoPipelines() throws Exception {
+		RedisWriteCoalescer coalescer = newCoalescer(16, TimeUnit.SECONDS.toMicros(1));
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			futures.add(coalescer.saveHash("h", "f" + i, i));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+		assertEquals(32, sent.get());
+		assertEquals(2, pipelines.get());   // 攒够max-batch立即发送, 不等max-delay
+		coalescer.stop();
+	}
+
+	@Test
+	public void submitAfterStopStillFlushes() throws Exception {
+		RedisWriteCoalescer coalescer = newCoalescer(64, TimeUnit.SECONDS.toMicros(1));
+		CompletableFuture<Void> queued = coalescer.saveHash("h", "before", 1);
+		coalescer.stop();
+		queued.get(5, TimeUnit.SECONDS);
+		// 调用方在stop之前通过了running检查, stop清理完队列之后才入队
+		Consumer<RedisOperations<Object, Object>> command = operations -> operations.opsForHash().put("h", "after", 2);
+		CompletableFuture<Void> late = ReflectionTestUtils.invokeMethod(coalescer, "submit", command);
+		late.get(5, TimeUnit.SECONDS);
+		assertEquals(2, sent.get());
+	}
+
+	@SuppressWarnings("unchecked")   // mock泛型类型
+	private RedisWriteCoalescer newCoalescer(int maxBatch, long maxDelayMicros) {
+		HashOperations<Object, Object, Object> hashOperations = mock(HashOperations.class);
+		doAnswer(invocation -> {
+			sent.incrementAndGet();
+			return null;
+		}).when(hashOperations).put(any(), any(), any());
+		RedisOperations<Object, Object> operations = mock(RedisOperations.class, Answers.RETURNS_MOCKS);
+		when(operations.opsForHash()).thenReturn(hashOperations);
+		RedisTemplate<Object, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+			SessionCallback<Object> callback = invocation.getArgument(0);
+			callback.execute(operations);
+			pipelines.incrementAndGet();
+			return Collections.emptyList();
+		});
+		RedisWriteCoalescer coalescer = new RedisWriteCoalescer();
+		ReflectionTestUtils.setField(coalescer, "enabled", true);
+		ReflectionTestUtils.setField(coalescer, "maxBatch", maxBatch);
+		ReflectionTestUtils.setField(coalescer, "maxDelayMicros", maxDelayMicros);
+		ReflectionTestUtils.setField(coalescer, "redisTemplate", redisTemplate);
+		ReflectionTestUtils.setField(coalescer, "redisTemplateUtil", mock(RedisTemplateUtil.class));
+		coalescer.start();
+		return coalescer;
+	}
+}
@@ -0,0 +1,48 @@
+package cn.gc.redis.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryStrategyTest {
+
+	@Test
+	public void fixedAlwaysReturnsInterval() {
+		RetryStrategy strategy = RetryStrategy.fixed(50L);
+		for (int attempt = 1; attempt <= 10; attempt++) {
+			assertEquals(50L, strategy.nextDelay(attempt, 50L));
+		}
+	}
+
+	@Test
+	public void exponentialJitterStaysWithinDoublingCeiling() {
+		RetryStrategy strategy = RetryStrategy.exponentialJitter(10L, 500L);
+		for (int i = 0; i < 1000; i++) {
+			for (int attempt = 1; attempt <= 40; attempt++) {
+				long ceiling = Math.min(500L, 10L << Math.min(attempt - 1, 30));
+				long delay = strategy.nextDelay(attempt, 0L);
+				assertTrue("attempt " + attempt + ": " + delay, delay >= 1L && delay <= ceiling);
+			}
+		}
+	}
+
+	@Test
+	public void exponentialJitterDoesNotOverflowOnLargeAttempts() {
+		RetryStrategy strategy = RetryStrategy.exponentialJitter(Long.MAX_VALUE / 4, Long.MAX_VALUE / 2);
+		long delay = strategy.nextDelay(Integer.MAX_VALUE, 0L);
+		assertTrue(delay >= 1L && delay <= Long.MAX_VALUE / 2);
+	}
+
+	@Test
+	public void decorrelatedJitterStaysBetweenBaseAndCap() {
+		RetryStrategy strategy = RetryStrategy.decorrelatedJitter(20L, 300L);
+		long delay = 0L;
+		for (int attempt = 1; attempt <= 10000; attempt++) {
+			long next = strategy.nextDelay(attempt, delay);
+			assertTrue("attempt " + attempt + ": " + next, next >= 20L && next <= 300L);
+			assertTrue(next <= Math.max(delay, 20L) * 3);
+			delay = next;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package cn.gc.redis.util;
+
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只应答加锁/解锁脚本的RedisTemplateUtil替身，返回预先构造的结果，不产生分配；加锁总是成功，fencing token固定为7
+ */
+public class StubRedisTemplateUtil extends RedisTemplateUtil {
+
+	private static final List<Object> LOCKED = Arrays.asList(1L, 7L);
+
+	private static final Long RELEASED = 1L;
+
+	final AtomicInteger locks = new AtomicInteger();
+
+	final AtomicInteger unlocks = new AtomicInteger();
+
+	/**
+	 * 不依赖spring容器、访问替身的RedisLockUtil
+	 */
+	public static RedisLockUtil newLockUtil(StubRedisTemplateUtil redis) {
+		RedisLockUtil lockUtil = new RedisLockUtil();
+		ReflectionTestUtils.setField(lockUtil, "redisTemplate", redis);
+		ReflectionTestUtils.setField(lockUtil, "watchdog", new RedisLockWatchdog());
+		ReflectionTestUtils.setField(lockUtil, "slotStats", new RedisSlotStats());
+		ReflectionTestUtils.setField(lockUtil, "leaseTuner", new RedisLeaseTuner());
+		return lockUtil;
+	}
+
+	public int unlocks() {
+		return unlocks.get();
+	}
+
+	@Override
+	public boolean isCluster() {
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+		if (script == RedisLockUtil.LOCK_SCRIPT) {
+			locks.incrementAndGet();
+			return (T) LOCKED;
+		}
+		unlocks.incrementAndGet();
+		return (T) RELEASED;
+	}
+}
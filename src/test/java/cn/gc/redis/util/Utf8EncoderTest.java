@@ -0,0 +1,125 @@
+package cn.gc.redis.util;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 编码结果与String.getBytes(UTF_8)逐字节比较
+ */
+public class Utf8EncoderTest {
+
+	@Test
+	public void sameAsStringGetBytes() {
+		List<String> samples = Arrays.asList("", "abc", "é", "ß߿", "ࠀ中文￿", "😀", "a😀b😀",
+				"\uD800", "\uDC00", "x\uD800y", "\uDC00\uD800", "\uD800𐀀", "\uD83D", "end\uDBFF");
+		for (String sample : samples) {
+			assertSame(sample);
+		}
+	}
+
+	@Test
+	public void randomStringsIncludingUnpairedSurrogates() {
+		Random random = new Random(20261017L);
+		char[] pool = {'a', '0', 'é', '中', '￿', '\uD83D', '\uDE00', '\uDBFF', '\uDFFF', '\u0080', '߿', 'ࠀ'};
+		for (int round = 0; round < 5000; round++) {
+			char[] chars = new char[random.nextInt(12)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(0x10000) : pool[random.nextInt(pool.length)];
+			}
+			assertSame(new String(chars));
+		}
+	}
+
+	@Test
+	public void charSequenceIsEncodedWithoutToString() {
+		StringBuilder builder = new StringBuilder("订单").append('😀').append(42);
+		assertArrayEquals(builder.toString().getBytes(StandardCharsets.UTF_8), Utf8Encoder.encode(builder));
+	}
+
+	@Test
+	public void numbersAndOtherValues() {
+		Object[] values = {0, 7, -7, 10, 1234567890, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, -1L, 1000000000000L,
+				Long.MAX_VALUE, Long.MIN_VALUE, 1.5d, true, 'x'};
+		for (Object value : values) {
+			assertArrayEquals(String.valueOf(value), String.valueOf(value).getBytes(StandardCharsets.UTF_8), Utf8Encoder.encode(value));
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void nullValueIsRejected() {
+		Utf8Encoder.encode((Object) null);   // 与原先setHash中value.toString()一致, 不写入"null"
+	}
+
+	@Test
+	public void joinMatchesListToStr() {
+		List<List<String>> lists = Arrays.asList(
+				Collections.<String>emptyList(),
+				Collections.singletonList("a"),
+				Arrays.asList("a", "中", "😀"),
+				Arrays.asList("a", null, ""),
+				Arrays.asList("\uD800", "x"));
+		for (List<String> list : lists) {
+			assertArrayEquals(StringUtils.listToStr(list, ",").getBytes(StandardCharsets.UTF_8), Utf8Encoder.join(list, ','));
+		}
+		assertEquals(0, Utf8Encoder.join(null, ',').length);
+	}
+
+	/**
+	 * 不是JMH基准(构建中没有JMH)，用线程分配计数器对比setHash写一个整数字段值的两种编码方式每个值的分配字节数
+	 */
+	@Test
+	public void allocationPerValue() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+		Object value = 1234567890123L;
+		int iterations = 100000;
+		long encoder = allocated(threadBean, iterations, () -> Utf8Encoder.encode(value));
+		long toString = allocated(threadBean, iterations, () -> value.toString().getBytes(StandardCharsets.UTF_8));
+		assertTrue("整数字段值: Utf8Encoder " + encoder + " bytes/个, toString().getBytes " + toString + " bytes/个", encoder < toString);
+	}
+
+	private static long allocated(com.sun.management.ThreadMXBean threadBean, int iterations, Supplier<byte[]> encode) {
+		long threadId = Thread.currentThread().getId();
+		int sink = 0;
+		for (int i = 0; i < iterations; i++) {   // 预热
+			sink += encode.get().length;
+		}
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			sink += encode.get().length;
+		}
+		long perValue = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+		assertTrue(sink > 0);
+		return perValue;
+	}
+
+	private static void assertSame(String sample) {
+		byte[] expected = sample.getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(escape(sample), expected, Utf8Encoder.encode(sample));
+		assertEquals(escape(sample), expected.length, Utf8Encoder.encodedLength(sample));
+		byte[] dest = new byte[expected.length + 2];
+		assertEquals(expected.length + 1, Utf8Encoder.encode(sample, dest, 1));
+	}
+
+	private static String escape(String sample) {
+		StringBuilder builder = new StringBuilder();
+		for (char c : sample.toCharArray()) {
+			builder.append(String.format("\\u%04X", (int) c));
+		}
+		return builder.toString();
+	}
+}